@@ -9,21 +9,33 @@ import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.filter.OncePerRequestFilter;
+import arious.backend.Auth.metrics.RateLimitedLogger;
 import arious.backend.Auth.user.UserService;
 
 import java.io.IOException;
 
+/**
+ * Authenticates requests from the {@code Authorization: Bearer} header.
+ *
+ * Runs on every protected request, so the common path allocates only the authentication itself:
+ * the header is verified in place by {@link JwtUtil#verifyBearer}, debug arguments are only built
+ * when debug is on, and the token is never logged.
+ */
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+    private static final RateLimitedLogger failureLogger = new RateLimitedLogger(logger, 10, 1000);
 
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final PublicRoutes publicRoutes;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserService userService) {
+    // Takes the PublicRoutes bean that also feeds permitAll, so both agree on what is public
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserService userService, PublicRoutes publicRoutes) {
         this.jwtUtil = jwtUtil;
         this.userService = userService;
+        this.publicRoutes = publicRoutes;
     }
 
     @Override
@@ -31,9 +43,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
 
-        String requestURI = request.getRequestURI();
         String method = request.getMethod();
-        logger.debug("Processing request: {} {}", method, requestURI);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Processing request: {} {}", method, request.getRequestURI());
+        }
 
         // Skip token validation for OPTIONS requests
         if (method.equals("OPTIONS")) {
@@ -42,66 +55,39 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         // Skip auth for public endpoints
-        if (isPublicEndpoint(requestURI, method)) {
+        if (publicRoutes.matches(request)) {
             filterChain.doFilter(request, response);
             return;
         }
 
         try {
-            String authHeader = request.getHeader("Authorization");
-            logger.debug("Authorization header: {}", authHeader);
-
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                logger.debug("No JWT token found in request");
+            // Missing, malformed, expired and revoked tokens are counted and logged inside JwtUtil
+            VerifiedToken token = jwtUtil.verifyBearer(request.getHeader("Authorization"));
+            if (token == null) {
                 filterChain.doFilter(request, response);
                 return;
             }
 
-            String jwt = authHeader.substring(7);
-            String email = jwtUtil.getEmailFromToken(jwt);
-            logger.debug("Extracted email from token: {}", email);
-
+            String email = token.getSubject();
             if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userService.loadUserByUsername(email);
-                logger.debug("User loaded: {}, authorities: {}", userDetails.getUsername(), userDetails.getAuthorities());
-
-                if (jwtUtil.validateToken(jwt)) {
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails, null, userDetails.getAuthorities());
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    logger.debug("Authentication set successfully for user: {} with authorities: {}",
-                            email, userDetails.getAuthorities());
-                } else {
-                    logger.warn("Token validation failed for: {}", email);
+                // Stateless mode trusts the signed roles claim and skips the database entirely
+                UserDetails userDetails = jwtUtil.isStatelessPrincipal()
+                        ? token.toPrincipal()
+                        : userService.loadUserByUsername(email);
+
+                SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                        userDetails, null, userDetails.getAuthorities()));
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Authenticated {} with authorities {}", email, userDetails.getAuthorities());
                 }
             }
+        } catch (UsernameNotFoundException e) {
+            // Valid token for a user deleted since, continues unauthenticated like a missing token
+            logger.debug("Token subject no longer exists");
         } catch (Exception e) {
-            logger.error("Authentication error: {}", e.getMessage(), e);
+            failureLogger.error("Authentication error: {}", e.getMessage(), e);
         }
 
         filterChain.doFilter(request, response);
     }
-
-    private boolean isPublicEndpoint(String requestURI, String method) {
-        // Auth endpoints
-        if (requestURI.startsWith("/auth/login") ||
-                requestURI.startsWith("/auth/register") ||
-                requestURI.startsWith("/auth/setup-admin")) {
-            return true;
-        }
-
-        // Debug and health endpoints
-        if (requestURI.startsWith("/debug") ||
-                requestURI.startsWith("/api/health") ||
-                requestURI.startsWith("/api/test")) {
-            return true;
-        }
-
-
-
-
-
-        return false;
-    }
-}
\ No newline at end of file
+}
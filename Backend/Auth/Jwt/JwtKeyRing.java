@@ -0,0 +1,300 @@
+package arious.backend.Auth.Jwt;
+
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecureDigestAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Signing and verification keys for issued JWTs.
+ *
+ * With the default HS256 the ring only holds the shared {@code jwt.secret}. With ES256, EdDSA
+ * or RS256 it holds an active key pair, the next one (already published so JWKS caches pick
+ * it up before it signs anything) and retired ones that stay verifiable for the overlap window.
+ * Every asymmetric token carries a {@code kid} header and verification looks it up in an
+ * immutable map that is swapped as a whole on rotation.
+ *
+ * Key pairs are generated in-process, so with asymmetric signing every node publishes its
+ * own keys; run a single issuer or front the JWKS endpoint accordingly.
+ *
+ * Once signing is asymmetric a token without a {@code kid} is rejected: the shared secret would
+ * otherwise stay a second way to forge tokens. Right after switching from HS256, the tokens issued
+ * before the switch can be honoured until {@code jwt.keys.legacy-hmac-until} (an ISO-8601 instant),
+ * which is capped at one access-token lifetime after startup, since by then they have all expired.
+ */
+@Component
+public class JwtKeyRing extends LocatorAdapter<Key> {
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRing.class);
+    private static final Base64.Encoder B64URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final String algorithm;
+    private final long overlapMillis;
+    private final SecretKey hmacKey;
+    // Epoch ms until which kid-less HS256 tokens still verify under asymmetric signing, 0 for never
+    private final long legacyHmacUntil;
+    private final ReentrantLock rotationLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public JwtKeyRing(@Value("${jwt.secret}") String secretString,
+                      @Value("${jwt.algorithm:HS256}") String algorithm,
+                      @Value("${jwt.keys.overlap-ms:90000000}") long overlapMillis,
+                      @Value("${jwt.expiration:900000}") long accessExpiration,
+                      @Value("${jwt.keys.legacy-hmac-until:}") String legacyHmacUntil) {
+        this.algorithm = algorithm.toUpperCase();
+        this.overlapMillis = overlapMillis;
+        // Under asymmetric signing only used for kid-less tokens until the legacy cutoff
+        this.hmacKey = secretString != null && !secretString.isEmpty()
+                ? Keys.hmacShaKeyFor(secretString.getBytes()) : null;
+        this.legacyHmacUntil = legacyCutoff(legacyHmacUntil, accessExpiration);
+
+        if (isSymmetric()) {
+            if (hmacKey == null) {
+                throw new IllegalStateException("jwt.secret is required for HS256");
+            }
+            this.snapshot = new Snapshot(null, null, Collections.emptyList());
+        } else {
+            this.snapshot = new Snapshot(generate(), generate(), Collections.emptyList());
+        }
+        logger.info("JWT signing algorithm: {}", this.algorithm);
+    }
+
+    public boolean isSymmetric() {
+        return "HS256".equals(algorithm);
+    }
+
+    // Adds the kid header and signs with the active key
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    JwtBuilder sign(JwtBuilder builder) {
+        if (isSymmetric()) {
+            return builder.signWith(hmacKey, Jwts.SIG.HS256);
+        }
+        RingKey active = snapshot.active;
+        return builder.header().keyId(active.kid).and()
+                .signWith(active.keyPair.getPrivate(), (SecureDigestAlgorithm) active.signatureAlgorithm);
+    }
+
+    @Override
+    protected Key locate(JwsHeader header) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            if (isSymmetric() || System.currentTimeMillis() < legacyHmacUntil) {
+                return hmacKey;
+            }
+            // Asymmetric signing always sets a kid, jjwt rejects the token
+            return null;
+        }
+        // Unknown kid: return null and let jjwt reject the token
+        return snapshot.verificationKeys.get(kid);
+    }
+
+    /**
+     * Promotes the pre-published next key, retires the active one and drops keys past their overlap.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keys.rotation-interval-ms:86400000}",
+            initialDelayString = "${jwt.keys.rotation-interval-ms:86400000}")
+    public void rotate() {
+        if (isSymmetric()) {
+            return;
+        }
+        rotationLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            Snapshot current = snapshot;
+            List<RingKey> retired = new ArrayList<>();
+            for (RingKey key : current.retired) {
+                if (key.retireAt > now) {
+                    retired.add(key);
+                }
+            }
+            retired.add(current.active.retiredAt(now + overlapMillis));
+            snapshot = new Snapshot(current.next, generate(), retired);
+            logger.info("Rotated JWT signing key, active kid: {}, {} retired key(s) still verifiable",
+                    current.next.kid, retired.size());
+        } finally {
+            rotationLock.unlock();
+        }
+    }
+
+    private long legacyCutoff(String until, long accessExpiration) {
+        if (isSymmetric() || hmacKey == null || until == null || until.isBlank()) {
+            return 0;
+        }
+        long requested = Instant.parse(until.trim()).toEpochMilli();
+        long cap = System.currentTimeMillis() + accessExpiration;
+        if (requested > cap) {
+            logger.warn("jwt.keys.legacy-hmac-until {} is more than one access-token lifetime away, using {}",
+                    until, Instant.ofEpochMilli(cap));
+            return cap;
+        }
+        logger.info("Accepting kid-less HS256 tokens until {}", Instant.ofEpochMilli(requested));
+        return requested;
+    }
+
+    public byte[] getJwksJson() { return snapshot.jwksJson; }
+    public String getJwksEtag() { return snapshot.jwksEtag; }
+    public String getActiveKeyId() { return isSymmetric() ? null : snapshot.active.kid; }
+
+    private RingKey generate() {
+        try {
+            KeyPairGenerator generator;
+            SecureDigestAlgorithm<?, ?> signatureAlgorithm;
+            switch (algorithm) {
+                case "ES256":
+                    generator = KeyPairGenerator.getInstance("EC");
+                    generator.initialize(new ECGenParameterSpec("secp256r1"));
+                    signatureAlgorithm = Jwts.SIG.ES256;
+                    break;
+                case "EDDSA":
+                    generator = KeyPairGenerator.getInstance("Ed25519");
+                    signatureAlgorithm = Jwts.SIG.EdDSA;
+                    break;
+                case "RS256":
+                    generator = KeyPairGenerator.getInstance("RSA");
+                    generator.initialize(2048);
+                    signatureAlgorithm = Jwts.SIG.RS256;
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported jwt.algorithm: " + algorithm);
+            }
+            KeyPair keyPair = generator.generateKeyPair();
+            return new RingKey(thumbprint(keyPair.getPublic()), keyPair, signatureAlgorithm, Long.MAX_VALUE);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate " + algorithm + " key pair", e);
+        }
+    }
+
+    private static String thumbprint(PublicKey key) throws GeneralSecurityException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+        return B64URL.encodeToString(Arrays.copyOf(digest, 12));
+    }
+
+    // Public JWK per RFC 7517/7518/8037, only ever holds public material
+    private String toJwk(RingKey key) {
+        PublicKey publicKey = key.keyPair.getPublic();
+        StringBuilder json = new StringBuilder("{\"kid\":\"").append(key.kid).append("\",\"use\":\"sig\"");
+        if (publicKey instanceof ECPublicKey) {
+            ECPublicKey ec = (ECPublicKey) publicKey;
+            json.append(",\"kty\":\"EC\",\"crv\":\"P-256\",\"alg\":\"ES256\"")
+                    .append(",\"x\":\"").append(B64URL.encodeToString(unsigned(ec.getW().getAffineX(), 32))).append('"')
+                    .append(",\"y\":\"").append(B64URL.encodeToString(unsigned(ec.getW().getAffineY(), 32))).append('"');
+        } else if (publicKey instanceof RSAPublicKey) {
+            RSAPublicKey rsa = (RSAPublicKey) publicKey;
+            json.append(",\"kty\":\"RSA\",\"alg\":\"RS256\"")
+                    .append(",\"n\":\"").append(B64URL.encodeToString(unsigned(rsa.getModulus(), 0))).append('"')
+                    .append(",\"e\":\"").append(B64URL.encodeToString(unsigned(rsa.getPublicExponent(), 0))).append('"');
+        } else {
+            // Ed25519 SubjectPublicKeyInfo ends with the raw 32-byte key
+            byte[] encoded = publicKey.getEncoded();
+            byte[] raw = Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length);
+            json.append(",\"kty\":\"OKP\",\"crv\":\"Ed25519\",\"alg\":\"EdDSA\"")
+                    .append(",\"x\":\"").append(B64URL.encodeToString(raw)).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    // Big-endian without the sign byte, left-padded to length when length > 0
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        if (length > bytes.length) {
+            byte[] padded = new byte[length];
+            System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+            return padded;
+        }
+        return bytes;
+    }
+
+    private static final class RingKey {
+        final String kid;
+        final KeyPair keyPair;
+        final SecureDigestAlgorithm<?, ?> signatureAlgorithm;
+        final long retireAt;
+
+        RingKey(String kid, KeyPair keyPair, SecureDigestAlgorithm<?, ?> signatureAlgorithm, long retireAt) {
+            this.kid = kid;
+            this.keyPair = keyPair;
+            this.signatureAlgorithm = signatureAlgorithm;
+            this.retireAt = retireAt;
+        }
+
+        RingKey retiredAt(long retireAt) {
+            return new RingKey(kid, keyPair, signatureAlgorithm, retireAt);
+        }
+    }
+
+    // Everything the request path reads, replaced atomically on rotation
+    private final class Snapshot {
+        final RingKey active;
+        final RingKey next;
+        final List<RingKey> retired;
+        final Map<String, Key> verificationKeys;
+        final byte[] jwksJson;
+        final String jwksEtag;
+
+        Snapshot(RingKey active, RingKey next, List<RingKey> retired) {
+            this.active = active;
+            this.next = next;
+            this.retired = Collections.unmodifiableList(retired);
+
+            List<RingKey> published = new ArrayList<>();
+            if (active != null) published.add(active);
+            if (next != null) published.add(next);
+            published.addAll(retired);
+
+            Map<String, Key> keys = new HashMap<>();
+            StringBuilder json = new StringBuilder("{\"keys\":[");
+            for (int i = 0; i < published.size(); i++) {
+                RingKey key = published.get(i);
+                keys.put(key.kid, key.keyPair.getPublic());
+                if (i > 0) json.append(',');
+                json.append(toJwk(key));
+            }
+            json.append("]}");
+
+            this.verificationKeys = Collections.unmodifiableMap(keys);
+            this.jwksJson = json.toString().getBytes(StandardCharsets.UTF_8);
+            this.jwksEtag = etag(jwksJson);
+        }
+    }
+
+    private static String etag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + B64URL.encodeToString(Arrays.copyOf(digest, 16)) + "\"";
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package arious.backend.Auth.Jwt;
+
+import arious.backend.Auth.user.AuthorityRegistry;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Lightweight principal rebuilt purely from verified token claims.
+ * Used in stateless principal mode so the filter never has to load the User document;
+ * endpoints that need the full document go through {@code UserService.hydrate}.
+ */
+public final class JwtPrincipal implements UserDetails {
+    private final String email;
+    private final Set<String> roles;
+    private final Set<GrantedAuthority> authorities;
+
+    JwtPrincipal(String email, Set<String> roles) {
+        this.email = email;
+        this.roles = roles;
+        this.authorities = AuthorityRegistry.forRoles(roles).getAuthorities();
+    }
+
+    public Set<String> getRoles() { return roles; }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() { return authorities; }
+
+    // Credentials never leave the database in this mode
+    @Override
+    public String getPassword() { return null; }
+
+    @Override
+    public String getUsername() { return email; }
+
+    @Override
+    public boolean isAccountNonExpired() { return true; }
+    @Override
+    public boolean isAccountNonLocked() { return true; }
+    @Override
+    public boolean isCredentialsNonExpired() { return true; }
+    @Override
+    public boolean isEnabled() { return true; }
+
+    @Override
+    public String toString() {
+        return "JwtPrincipal{email=" + email + ", roles=" + roles + "}";
+    }
+}
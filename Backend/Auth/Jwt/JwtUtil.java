@@ -1,36 +1,95 @@
 package arious.backend.Auth.Jwt;
 
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.metrics.RateLimitedLogger;
 import arious.backend.Auth.user.User;
 import arious.backend.Auth.user.UserRepository;
 
-import javax.crypto.SecretKey;
 import java.util.*;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
+    private static final String BEARER = "Bearer ";
 
-    @Value("${jwt.secret}")
-    private String secretString;
+    // Bad tokens are attacker-controlled, at most 10 log lines a second however many arrive
+    private static final RateLimitedLogger logger = new RateLimitedLogger(LoggerFactory.getLogger(JwtUtil.class), 10, 1000);
 
-    @Value("${jwt.expiration:86400000}")
+    // Access tokens are short-lived, clients renew them through /auth/refresh
+    @Value("${jwt.expiration:900000}")
     private long expiration;
 
+    // When true the filter builds the principal from token claims instead of loading the user
+    @Value("${jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
+
     private final UserRepository userRepository;
+    private final VerifiedTokenCache tokenCache;
+    private final JwtKeyRing keyRing;
+    private final TokenRevocationService revocationService;
+    private final AuthMetrics metrics;
+
+    // Built once at startup and thread-safe, keys are resolved through the ring by kid
+    private JwtParser parser;
 
-    public JwtUtil(UserRepository userRepository) {
+    public JwtUtil(UserRepository userRepository, VerifiedTokenCache tokenCache, JwtKeyRing keyRing,
+                   TokenRevocationService revocationService, AuthMetrics metrics) {
         this.userRepository = userRepository;
+        this.tokenCache = tokenCache;
+        this.keyRing = keyRing;
+        this.revocationService = revocationService;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void init() {
+        this.parser = Jwts.parser()
+                .keyLocator(keyRing)
+                .build();
     }
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secretString.getBytes());
+    public long getExpiration() {
+        return expiration;
+    }
+
+    public boolean isStatelessPrincipal() {
+        return statelessPrincipal;
     }
 
     // Generate token with roles included
+    public String generateToken(User user) {
+        return generateToken(user.getEmail(), user.getRoles());
+    }
+
+    // Issue a token for an already-loaded user, no database access
+    public String generateToken(String email, Collection<String> roles) {
+        // Convert roles to a list for JWT claims
+        List<String> rolesList = roles != null ? new ArrayList<>(roles) : new ArrayList<>();
+
+        JwtBuilder builder = Jwts.builder()
+                .id(UUID.randomUUID().toString())
+                .subject(email)
+                .claim("roles", rolesList)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + expiration));
+        long start = System.nanoTime();
+        String token = keyRing.sign(builder).compact();
+        metrics.recordTokenSign(System.nanoTime() - start);
+        return token;
+    }
+
+    /**
+     * Looks the user up again just to read the roles.
+     *
+     * @deprecated use {@link #generateToken(User)} with the user the caller already loaded
+     */
+    @Deprecated
     public String generateToken(String email) {
         Optional<User> userOpt = userRepository.findByEmail(email);
         Set<String> roles = new HashSet<>();
@@ -39,79 +98,133 @@ public class JwtUtil {
             roles = userOpt.get().getRoles();
         }
 
-        // Convert roles to a list for JWT claims
-        List<String> rolesList = new ArrayList<>(roles);
+        return generateToken(email, roles);
+    }
 
-        return Jwts.builder()
-                .subject(email)
-                .claim("roles", rolesList)
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), Jwts.SIG.HS256)
-                .compact();
+    /**
+     * Verifies the signature and decodes the claims exactly once.
+     * Tokens seen before are answered from {@link VerifiedTokenCache} without any signature work.
+     * Revocation is checked on every call, cached or not, so a revoked token stops working at once.
+     *
+     * @return the decoded token, or {@code null} if it is expired, revoked, malformed or not signed by us
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        return verify(token, 0);
     }
 
-    public String getEmailFromToken(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            return claims.getSubject();
-        } catch (Exception e) {
-            System.err.println("Error extracting email from token: " + e.getMessage());
+    /**
+     * Same as {@link #verify(String)} for a raw {@code Authorization} header value. The token is read
+     * in place behind the {@code "Bearer "} prefix, so a cache hit allocates nothing per request.
+     */
+    public VerifiedToken verifyBearer(String authorizationHeader) {
+        if (authorizationHeader == null || !authorizationHeader.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            metrics.tokenResult(TokenStatus.MISSING);
             return null;
         }
+        return verify(authorizationHeader, BEARER.length());
     }
 
-    public boolean validateToken(String token) {
+    // Verifies source[offset..]; only a cache miss that reaches the parser pays for a substring
+    private VerifiedToken verify(String source, int offset) {
+        long start = System.nanoTime();
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            VerifiedToken verified = tokenCache.get(source, offset);
+            if (verified == null) {
+                verified = verifySignature(source, offset);
+            }
+            return checkRevoked(verified);
+        } finally {
+            metrics.recordTokenVerify(System.nanoTime() - start);
+        }
+    }
+
+    private VerifiedToken verifySignature(String source, int offset) {
+        // Garbage and stale tokens are turned away here, without a parse or an exception
+        TokenStatus rejected = TokenPrecheck.check(source, offset, System.currentTimeMillis());
+        if (rejected != null) {
+            metrics.tokenResult(rejected);
+            logger.warn("Rejected JWT token: {}", rejected);
+            return null;
+        }
+        String token = offset == 0 ? source : source.substring(offset);
+        try {
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            VerifiedToken verified = toVerifiedToken(claims);
+            tokenCache.put(source, offset, verified);
+            return verified;
         } catch (ExpiredJwtException e) {
-            System.err.println("JWT token is expired: " + e.getMessage());
-            return false;
+            // The precheck only reads a plain numeric exp, anything else is caught here
+            metrics.tokenResult(TokenStatus.EXPIRED);
+            logger.warn("JWT token is expired: {}", e.getMessage());
+            return null;
+        } catch (SignatureException e) {
+            metrics.tokenResult(TokenStatus.BAD_SIGNATURE);
+            logger.warn("JWT signature rejected: {}", e.getMessage());
+            return null;
         } catch (JwtException | IllegalArgumentException e) {
-            System.err.println("Invalid JWT token: " + e.getMessage());
+            metrics.tokenResult(TokenStatus.MALFORMED);
+            logger.warn("Invalid JWT token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private VerifiedToken checkRevoked(VerifiedToken verified) {
+        if (verified == null) {
+            return null;
+        }
+        if (revocationService.isRevoked(verified)) {
+            metrics.tokenResult(TokenStatus.REVOKED);
+            return null;
+        }
+        metrics.tokenResult(TokenStatus.VALID);
+        return verified;
+    }
+
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        Date expiresAt = claims.getExpiration();
+        return new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                VerifiedToken.rolesFromClaim(claims.get("roles")),
+                issuedAt != null ? issuedAt.toInstant() : null,
+                expiresAt != null ? expiresAt.toInstant() : null);
+    }
+
+    // Revokes just this token; it keeps failing verification until it would have expired
+    public boolean revoke(String token) {
+        VerifiedToken verified = verify(token);
+        if (verified == null) {
             return false;
         }
+        revocationService.revoke(verified);
+        return true;
+    }
+
+    public String getEmailFromToken(String token) {
+        VerifiedToken verified = verify(token);
+        return verified != null ? verified.getSubject() : null;
+    }
+
+    public boolean validateToken(String token) {
+        return verify(token) != null;
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
             return claimsResolver.apply(claims);
         } catch (Exception e) {
-            System.err.println("Error extracting claim: " + e.getMessage());
+            logger.warn("Error extracting claim: {}", e.getMessage());
             return null;
         }
     }
 
     public Set<String> extractRoles(String token) {
-        try {
-            Object rolesObj = extractClaim(token, claims -> claims.get("roles"));
-            Set<String> roles = new HashSet<>();
-
-            if (rolesObj instanceof List<?>) {
-                for (Object role : (List<?>) rolesObj) {
-                    if (role instanceof String) {
-                        roles.add((String) role);
-                    }
-                }
-            }
-
-            return roles;
-        } catch (Exception e) {
-            System.err.println("Error extracting roles: " + e.getMessage());
-            return new HashSet<>();
-        }
+        VerifiedToken verified = verify(token);
+        return verified != null ? new HashSet<>(verified.getRoles()) : new HashSet<>();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package arious.backend.Auth.Jwt;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+/**
+ * The endpoints that need no token, compiled once into a path-segment trie.
+ *
+ * Routes come from {@code security.public-routes}, a comma separated list of
+ * {@code [METHOD ]path} entries. A path matches segment by segment and exactly, unless it ends
+ * in {@code /**}, which also matches everything below it. Without a method every method matches.
+ *
+ * The same instance is meant for both the JWT filter's skip check and the security config's
+ * {@code requestMatchers(publicRoutes).permitAll()}, so the two can never drift apart.
+ * A lookup walks the request URI in place: no substrings, no regex, and the cost depends on
+ * the number of segments in the path, not on the number of routes.
+ */
+@Component
+public class PublicRoutes implements RequestMatcher {
+
+    static final String DEFAULT_ROUTES =
+            "POST /auth/login, POST /auth/register, POST /auth/refresh, POST /auth/setup-admin, "
+            + "GET /.well-known/jwks.json, /api/health/**, GET /api/test/all";
+
+    // One bit per method, see methodBit
+    private static final int ANY_METHOD = 0xFF;
+
+    private final Node root = new Node();
+
+    public PublicRoutes(@Value("${security.public-routes:" + DEFAULT_ROUTES + "}") String[] routes) {
+        for (String route : routes) {
+            add(route.trim());
+        }
+    }
+
+    // The built-in table, for code that runs without a Spring context such as the benchmarks
+    public static PublicRoutes defaults() {
+        return new PublicRoutes(DEFAULT_ROUTES.split(","));
+    }
+
+    private void add(String route) {
+        if (route.isEmpty()) {
+            return;
+        }
+        int methods = ANY_METHOD;
+        String path = route;
+        int space = route.indexOf(' ');
+        if (space > 0) {
+            methods = methodBit(route.substring(0, space).toUpperCase());
+            if (methods == 0) {
+                throw new IllegalArgumentException("Unknown HTTP method in public route: " + route);
+            }
+            path = route.substring(space + 1).trim();
+        }
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Public route must start with '/': " + route);
+        }
+
+        boolean prefix = path.endsWith("/**");
+        if (prefix) {
+            path = path.substring(0, path.length() - 3);
+        }
+        Node node = root;
+        if (path.length() > 1) {
+            for (String segment : path.substring(1).split("/", -1)) {
+                node = node.child(segment);
+            }
+        }
+        if (prefix) {
+            node.prefixMethods |= methods;
+        } else {
+            node.exactMethods |= methods;
+        }
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        String contextPath = request.getContextPath();
+        return isPublic(request.getRequestURI(), contextPath != null ? contextPath.length() : 0, request.getMethod());
+    }
+
+    public boolean isPublic(String uri, String method) {
+        return isPublic(uri, 0, method);
+    }
+
+    // Walks the URI from offset, one segment per trie level
+    boolean isPublic(String uri, int offset, String method) {
+        int bit = methodBit(method);
+        if (bit == 0 || uri == null || uri.length() <= offset || uri.charAt(offset) != '/') {
+            return false;
+        }
+        Node node = root;
+        int start = offset + 1;
+        int end = uri.length();
+        if (start == end) {
+            return ((node.exactMethods | node.prefixMethods) & bit) != 0;
+        }
+        while (true) {
+            if ((node.prefixMethods & bit) != 0) {
+                return true;
+            }
+            int slash = uri.indexOf('/', start);
+            int segmentEnd = slash < 0 ? end : slash;
+            node = node.find(uri, start, segmentEnd);
+            if (node == null) {
+                return false;
+            }
+            if (slash < 0) {
+                return ((node.exactMethods | node.prefixMethods) & bit) != 0;
+            }
+            start = slash + 1;
+        }
+    }
+
+    private static int methodBit(String method) {
+        if (method == null) {
+            return 0;
+        }
+        switch (method) {
+            case "GET": return 1;
+            case "HEAD": return 1 << 1;
+            case "POST": return 1 << 2;
+            case "PUT": return 1 << 3;
+            case "PATCH": return 1 << 4;
+            case "DELETE": return 1 << 5;
+            case "OPTIONS": return 1 << 6;
+            case "TRACE": return 1 << 7;
+            default: return 0;
+        }
+    }
+
+    /**
+     * One path segment. Children live in a small open-addressed table keyed by the same hash
+     * {@link String#hashCode} uses, so a segment of the request URI can be looked up by range.
+     */
+    private static final class Node {
+        private String[] keys = new String[4];
+        private Node[] children = new Node[4];
+        private int size;
+        int exactMethods;
+        int prefixMethods;
+
+        Node child(String segment) {
+            Node existing = find(segment, 0, segment.length());
+            if (existing != null) {
+                return existing;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            Node node = new Node();
+            insert(segment, node);
+            size++;
+            return node;
+        }
+
+        Node find(String source, int from, int to) {
+            int mask = keys.length - 1;
+            int len = to - from;
+            for (int i = spread(hash(source, from, to)) & mask; keys[i] != null; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key.length() == len && source.regionMatches(from, key, 0, len)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private void insert(String key, Node node) {
+            int mask = keys.length - 1;
+            int i = spread(key.hashCode()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            children[i] = node;
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            Node[] oldChildren = children;
+            keys = new String[oldKeys.length * 2];
+            children = new Node[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    insert(oldKeys[i], oldChildren[i]);
+                }
+            }
+        }
+
+        private static int hash(String source, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + source.charAt(i);
+            }
+            return h;
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package arious.backend.Auth.Jwt;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One login session's chain of refresh tokens, stored as hashes only: the current one and the
+ * most recent retired ones. Presenting a retired token means it was stolen and revokes the whole
+ * family; a secret the family never issued changes nothing. Documents are removed by a TTL index
+ * once {@code expiresAt} passes.
+ */
+@Document(collection = "refresh_token_families")
+@Data
+public class RefreshTokenFamily {
+    @Id
+    private String id;
+
+    private String tokenHash;
+    // The hash tokenHash replaced at rotatedAt, still accepted as a harmless race for a short grace
+    private String previousHash;
+    // Newest last, capped at RefreshTokenService.RETIRED_HASHES_KEPT
+    private List<String> retiredHashes = new ArrayList<>();
+    private boolean revoked;
+
+    // A refresh re-reads the user by this id, so nothing else about them is copied here
+    private String userId;
+
+    private Date createdAt;
+    private Date rotatedAt;
+    private Date expiresAt;
+}
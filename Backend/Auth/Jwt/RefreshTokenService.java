@@ -0,0 +1,277 @@
+package arious.backend.Auth.Jwt;
+
+import arious.backend.Auth.user.User;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opaque, rotating refresh tokens of the form {@code <familyId>.<secret>}.
+ *
+ * A refresh is a single findAndModify on the family's {@code _id} that only matches while
+ * the presented secret is still the current one, and swaps in the next secret in the same
+ * write. On a miss the family is revoked only if the secret is one it retired: a replayed
+ * token. The secret rotated out within the last {@code jwt.refresh.reuse-grace-ms} is two tabs
+ * refreshing at once, and a secret the family never issued is a guess; both are a plain miss.
+ *
+ * The queries and token helpers are static so the {@code reactive} profile's
+ * {@link arious.backend.Auth.reactive.ReactiveRefreshTokenService} runs exactly the same ones.
+ */
+@Service
+@Profile("!reactive")
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final Base64.Encoder B64URL = Base64.getUrlEncoder().withoutPadding();
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int SECRET_BYTES = 32;
+    private static final int FAMILY_ID_BYTES = 16;
+    // About a day of rotations at the default 15 minute access token lifetime
+    public static final int RETIRED_HASHES_KEPT = 100;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${jwt.refresh.expiration-ms:1209600000}")
+    private long refreshExpiration;
+
+    @Value("${jwt.refresh.reuse-grace-ms:10000}")
+    private long reuseGrace;
+
+    public RefreshTokenService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    void ensureIndexes() {
+        for (Index index : indexes()) {
+            mongoTemplate.indexOps(RefreshTokenFamily.class).ensureIndex(index);
+        }
+    }
+
+    public Rotation issue(User user) {
+        String secret = newSecret();
+        RefreshTokenFamily family = newFamily(user, secret, new Date(), refreshExpiration);
+        mongoTemplate.insert(family);
+        return new Rotation(family.getId() + "." + secret, family);
+    }
+
+    /**
+     * @return the next token of the family, or {@code null} if the token is unknown, expired, revoked or replayed;
+     * only a replay revokes the family
+     */
+    public Rotation rotate(String refreshToken) {
+        String[] parts = split(refreshToken);
+        if (parts == null) {
+            return null;
+        }
+        String familyId = parts[0];
+        String nextSecret = newSecret();
+        Date now = new Date();
+
+        RefreshTokenFamily family = mongoTemplate.findAndModify(rotateQuery(familyId, parts[1], now),
+                rotateUpdate(parts[1], nextSecret, now), FindAndModifyOptions.options().returnNew(true),
+                RefreshTokenFamily.class);
+        if (family != null) {
+            return new Rotation(familyId + "." + nextSecret, family);
+        }
+
+        // Off the happy path: only a secret the family retired is a replay worth ending the session for
+        RefreshTokenFamily retired = mongoTemplate.findOne(retiredHashesQuery(familyId), RefreshTokenFamily.class);
+        if (isReplay(retired, parts[1], now, reuseGrace) && revokeFamily(familyId)) {
+            logger.warn("Refresh token reuse detected, revoked family {}", familyId);
+        }
+        return null;
+    }
+
+    /**
+     * Logout: revokes the family, but only for its current token. Knowing the family id alone,
+     * which is the readable half of the token, is not enough to end someone else's session.
+     *
+     * @return false if the token is unknown, already revoked or not the family's current one
+     */
+    public boolean revoke(String refreshToken) {
+        String[] parts = split(refreshToken);
+        if (parts == null) {
+            return false;
+        }
+        RefreshTokenFamily family = mongoTemplate.findOne(currentHashQuery(parts[0]), RefreshTokenFamily.class);
+        if (family == null || !matches(parts[1], family.getTokenHash())) {
+            return false;
+        }
+        return revokeFamily(parts[0]);
+    }
+
+    // Logs the user out everywhere: no family of theirs can be rotated again
+    public long revokeAllForUser(String userId) {
+        return revokeAllForUsers(List.of(userId));
+    }
+
+    // Same for a batch of users in a single round-trip, used by the bulk delete
+    public long revokeAllForUsers(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        return mongoTemplate.updateMulti(liveFamiliesOf(userIds), revokedUpdate(), RefreshTokenFamily.class)
+                .getModifiedCount();
+    }
+
+    private boolean revokeFamily(String familyId) {
+        return mongoTemplate.updateFirst(liveFamily(familyId), revokedUpdate(), RefreshTokenFamily.class)
+                .getModifiedCount() > 0;
+    }
+
+    public static List<Index> indexes() {
+        return List.of(
+                new Index("expiresAt", Sort.Direction.ASC).named("expiresAt_ttl").expire(0, TimeUnit.SECONDS),
+                new Index("userId", Sort.Direction.ASC).named("userId"));
+    }
+
+    public static RefreshTokenFamily newFamily(User user, String secret, Date now, long expirationMillis) {
+        RefreshTokenFamily family = new RefreshTokenFamily();
+        family.setId(randomToken(FAMILY_ID_BYTES));
+        family.setTokenHash(hash(secret));
+        family.setUserId(user.getId());
+        family.setCreatedAt(now);
+        family.setRotatedAt(now);
+        family.setExpiresAt(new Date(now.getTime() + expirationMillis));
+        return family;
+    }
+
+    // Matches only while the secret is the family's current one and the family is live
+    public static Query rotateQuery(String familyId, String secret, Date now) {
+        return new Query(Criteria.where("_id").is(familyId)
+                .and("tokenHash").is(hash(secret))
+                .and("revoked").is(false)
+                .and("expiresAt").gt(now));
+    }
+
+    // The presented secret becomes the previous one and joins the retired hashes, oldest dropped first
+    public static Update rotateUpdate(String secret, String nextSecret, Date now) {
+        String retiredHash = hash(secret);
+        Update update = new Update()
+                .set("tokenHash", hash(nextSecret))
+                .set("previousHash", retiredHash)
+                .set("rotatedAt", now);
+        update.push("retiredHashes").slice(-RETIRED_HASHES_KEPT).each(retiredHash);
+        return update;
+    }
+
+    public static Query currentHashQuery(String familyId) {
+        Query query = liveFamily(familyId);
+        query.fields().include("tokenHash");
+        return query;
+    }
+
+    public static Query retiredHashesQuery(String familyId) {
+        Query query = liveFamily(familyId);
+        query.fields().include("previousHash").include("retiredHashes").include("rotatedAt");
+        return query;
+    }
+
+    /**
+     * Whether a secret that failed to rotate {@code family} is a replayed one: it matches a
+     * retired hash, and is not the secret rotated out less than {@code graceMillis} ago.
+     */
+    public static boolean isReplay(RefreshTokenFamily family, String secret, Date now, long graceMillis) {
+        if (family == null || family.getRetiredHashes() == null) {
+            return false;
+        }
+        if (family.getRotatedAt() != null && now.getTime() - family.getRotatedAt().getTime() < graceMillis
+                && matches(secret, family.getPreviousHash())) {
+            return false;
+        }
+        boolean retired = false;
+        // No early exit, so the time taken does not depend on where the match is
+        for (String retiredHash : family.getRetiredHashes()) {
+            retired |= matches(secret, retiredHash);
+        }
+        return retired;
+    }
+
+    public static Query liveFamily(String familyId) {
+        return new Query(Criteria.where("_id").is(familyId).and("revoked").is(false));
+    }
+
+    public static Query liveFamiliesOf(Collection<String> userIds) {
+        return new Query(Criteria.where("userId").in(userIds).and("revoked").is(false));
+    }
+
+    public static Update revokedUpdate() {
+        return Update.update("revoked", true);
+    }
+
+    // @return {familyId, secret}, or null if the token is not of that form
+    public static String[] split(String refreshToken) {
+        if (refreshToken == null) {
+            return null;
+        }
+        int dot = refreshToken.indexOf('.');
+        if (dot <= 0 || dot == refreshToken.length() - 1) {
+            return null;
+        }
+        return new String[]{refreshToken.substring(0, dot), refreshToken.substring(dot + 1)};
+    }
+
+    public static String newSecret() {
+        return randomToken(SECRET_BYTES);
+    }
+
+    private static String randomToken(int bytes) {
+        byte[] buffer = new byte[bytes];
+        RANDOM.nextBytes(buffer);
+        return B64URL.encodeToString(buffer);
+    }
+
+    // Secrets are 256 random bits, a plain SHA-256 is enough to keep them out of the database
+    private static String hash(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.US_ASCII));
+            return B64URL.encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Constant-time, so the response time says nothing about how much of the hash matched
+    public static boolean matches(String secret, String storedHash) {
+        return storedHash != null && MessageDigest.isEqual(
+                hash(secret).getBytes(StandardCharsets.US_ASCII),
+                storedHash.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public long getRefreshExpiration() {
+        return refreshExpiration;
+    }
+
+    public static final class Rotation {
+        private final String refreshToken;
+        private final RefreshTokenFamily family;
+
+        public Rotation(String refreshToken, RefreshTokenFamily family) {
+            this.refreshToken = refreshToken;
+            this.family = family;
+        }
+
+        public String getRefreshToken() { return refreshToken; }
+        public RefreshTokenFamily getFamily() { return family; }
+    }
+}
@@ -0,0 +1,15 @@
+package arious.backend.Auth.Jwt;
+
+import java.util.function.Consumer;
+
+/**
+ * Fan-out of revocations to every node, including the one that published them.
+ * {@link LocalRevocationChannel} is the single-process implementation; a multi-node
+ * deployment provides its own {@code @Primary} bean backed by a broker or a shared store.
+ */
+public interface RevocationChannel {
+
+    void publish(RevocationEvent event);
+
+    void subscribe(Consumer<RevocationEvent> listener);
+}
@@ -0,0 +1,28 @@
+package arious.backend.Auth.Jwt;
+
+/**
+ * A single revocation as it travels between nodes over a {@link RevocationChannel}.
+ */
+public final class RevocationEvent {
+
+    public enum Type {
+        // key is a jti, epochMillis is the token's exp
+        TOKEN,
+        // key is a subject (email), epochMillis is the watermark: tokens issued before it are revoked
+        SUBJECT
+    }
+
+    private final Type type;
+    private final String key;
+    private final long epochMillis;
+
+    public RevocationEvent(Type type, String key, long epochMillis) {
+        this.type = type;
+        this.key = key;
+        this.epochMillis = epochMillis;
+    }
+
+    public Type getType() { return type; }
+    public String getKey() { return key; }
+    public long getEpochMillis() { return epochMillis; }
+}
@@ -0,0 +1,136 @@
+package arious.backend.Auth.Jwt;
+
+/**
+ * Rejects obviously bad tokens before jjwt sees them, so garbage and stale tokens cost a single
+ * scan instead of a parse that ends in an exception with a stack trace.
+ *
+ * Only ever says no: a token that passes still gets the full signature check. Reading {@code exp}
+ * from an unverified payload is safe for that reason; a forged value can only get its own token
+ * rejected. Nothing is allocated, the payload is base64url-decoded on the fly into a tiny
+ * state machine that looks for the first {@code "exp":<digits>}; the tokens we issue have flat
+ * claims, so that is always the registered claim.
+ */
+final class TokenPrecheck {
+
+    // Generous upper bound, real tokens here are a few hundred characters
+    static final int MAX_LENGTH = 8192;
+    private static final int MIN_LENGTH = 16;
+
+    private static final byte[] EXP_KEY = {'"', 'e', 'x', 'p', '"'};
+    private static final int[] BASE64URL = new int[128];
+
+    static {
+        java.util.Arrays.fill(BASE64URL, -1);
+        for (int i = 0; i < 26; i++) {
+            BASE64URL['A' + i] = i;
+            BASE64URL['a' + i] = 26 + i;
+        }
+        for (int i = 0; i < 10; i++) {
+            BASE64URL['0' + i] = 52 + i;
+        }
+        BASE64URL['-'] = 62;
+        BASE64URL['_'] = 63;
+    }
+
+    private TokenPrecheck() {
+    }
+
+    /**
+     * @return {@link TokenStatus#MALFORMED} or {@link TokenStatus#EXPIRED} for a token that can be
+     * turned away right here, {@code null} if it has to go through the real parser
+     */
+    static TokenStatus check(CharSequence source, int from, long nowMillis) {
+        int to = source.length();
+        int length = to - from;
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            return TokenStatus.MALFORMED;
+        }
+        int firstDot = -1;
+        int secondDot = -1;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            if (c == '.') {
+                if (firstDot < 0) {
+                    firstDot = i;
+                } else if (secondDot < 0) {
+                    secondDot = i;
+                } else {
+                    return TokenStatus.MALFORMED;
+                }
+            } else if (c >= 128 || BASE64URL[c] < 0) {
+                return TokenStatus.MALFORMED;
+            }
+        }
+        // header.payload.signature, none of them empty: we never accept unsigned tokens
+        if (secondDot < 0 || secondDot == to - 1) {
+            return TokenStatus.MALFORMED;
+        }
+        // Header and payload are JSON objects, which always encode to "ey..." (a { then a quote or a space)
+        if (!startsJsonObject(source, from, firstDot) || !startsJsonObject(source, firstDot + 1, secondDot)) {
+            return TokenStatus.MALFORMED;
+        }
+        long exp = readExp(source, firstDot + 1, secondDot);
+        if (exp >= 0 && exp * 1000L <= nowMillis) {
+            return TokenStatus.EXPIRED;
+        }
+        return null;
+    }
+
+    private static boolean startsJsonObject(CharSequence source, int from, int to) {
+        return to - from >= 2 && source.charAt(from) == 'e' && source.charAt(from + 1) == 'y';
+    }
+
+    // Seconds since the epoch, or -1 if there is no numeric exp claim
+    private static long readExp(CharSequence source, int from, int to) {
+        int matched = 0;        // bytes of "exp" matched so far
+        boolean afterKey = false;
+        boolean afterColon = false;
+        long value = -1;
+
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = from; i < to; i++) {
+            bits = (bits << 6) | BASE64URL[source.charAt(i)];
+            bitCount += 6;
+            if (bitCount < 8) {
+                continue;
+            }
+            bitCount -= 8;
+            int b = (bits >>> bitCount) & 0xFF;
+
+            if (value >= 0) {
+                if (b >= '0' && b <= '9') {
+                    if (value > Long.MAX_VALUE / 10000) {
+                        return -1;
+                    }
+                    value = value * 10 + (b - '0');
+                    continue;
+                }
+                return value;
+            }
+            if (afterKey) {
+                if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+                    continue;
+                }
+                if (!afterColon && b == ':') {
+                    afterColon = true;
+                    continue;
+                }
+                if (afterColon && b >= '0' && b <= '9') {
+                    value = b - '0';
+                    continue;
+                }
+                // "exp" was a string value or the claim is not a number, leave it to jjwt
+                return -1;
+            }
+            if (b == EXP_KEY[matched]) {
+                if (++matched == EXP_KEY.length) {
+                    afterKey = true;
+                }
+            } else {
+                matched = b == '"' ? 1 : 0;
+            }
+        }
+        return value;
+    }
+}
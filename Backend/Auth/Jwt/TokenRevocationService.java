@@ -0,0 +1,115 @@
+package arious.backend.Auth.Jwt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Revoked access tokens (by {@code jti}) and per-subject "revoked before" watermarks.
+ *
+ * The hot path asks a Bloom filter first, which answers "definitely not revoked" for almost
+ * every token in constant time, and only a possible hit is confirmed against the exact set.
+ * Entries are dropped once the token would have expired anyway, and the filter is rebuilt
+ * from the survivors so it does not fill up. Everything is in memory; other nodes learn about
+ * revocations through the {@link RevocationChannel}.
+ */
+@Component
+public class TokenRevocationService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevocationChannel channel;
+    private final int bloomBits;
+    private final int bloomHashes;
+    private final long maxTokenLifetime;
+
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> subjectWatermarks = new ConcurrentHashMap<>();
+    // Serializes writers with the periodic rebuild, readers never lock
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile BloomFilter filter;
+
+    public TokenRevocationService(RevocationChannel channel,
+                                  @Value("${jwt.revocation.bloom-bits:1048576}") int bloomBits,
+                                  @Value("${jwt.revocation.bloom-hashes:5}") int bloomHashes,
+                                  @Value("${jwt.expiration:900000}") long maxTokenLifetime) {
+        this.channel = channel;
+        this.bloomBits = bloomBits;
+        this.bloomHashes = bloomHashes;
+        this.maxTokenLifetime = maxTokenLifetime;
+        this.filter = new BloomFilter(bloomBits, bloomHashes);
+        channel.subscribe(this::apply);
+    }
+
+    public boolean isRevoked(VerifiedToken token) {
+        if (!subjectWatermarks.isEmpty() && token.getSubject() != null) {
+            Long watermark = subjectWatermarks.get(token.getSubject());
+            if (watermark != null && (token.getIssuedAt() == null || token.getIssuedAt().toEpochMilli() < watermark)) {
+                return true;
+            }
+        }
+        String jti = token.getId();
+        return jti != null && filter.mightContain(jti) && revokedTokens.containsKey(jti);
+    }
+
+    public void revoke(VerifiedToken token) {
+        if (token.getId() == null || token.getExpiresAt() == null) {
+            return;
+        }
+        channel.publish(new RevocationEvent(RevocationEvent.Type.TOKEN, token.getId(), token.getExpiresAt().toEpochMilli()));
+    }
+
+    /**
+     * Revokes every token of {@code subject} issued before {@code before}. Tokens issued within
+     * the same second may be caught too, since {@code iat} only has second precision.
+     */
+    public void revokeAllBefore(String subject, Instant before) {
+        channel.publish(new RevocationEvent(RevocationEvent.Type.SUBJECT, subject, before.toEpochMilli()));
+    }
+
+    private void apply(RevocationEvent event) {
+        writeLock.lock();
+        try {
+            if (event.getType() == RevocationEvent.Type.TOKEN) {
+                revokedTokens.put(event.getKey(), event.getEpochMillis());
+                filter.add(event.getKey());
+            } else {
+                subjectWatermarks.merge(event.getKey(), event.getEpochMillis(), Math::max);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Expired tokens cannot be used anyway, forget them and start a fresh filter from what is left
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        writeLock.lock();
+        try {
+            int before = revokedTokens.size();
+            revokedTokens.values().removeIf(exp -> exp <= now);
+            subjectWatermarks.values().removeIf(watermark -> watermark + maxTokenLifetime <= now);
+
+            BloomFilter rebuilt = new BloomFilter(bloomBits, bloomHashes);
+            for (Map.Entry<String, Long> entry : revokedTokens.entrySet()) {
+                rebuilt.add(entry.getKey());
+            }
+            filter = rebuilt;
+            if (before != revokedTokens.size()) {
+                logger.debug("Purged {} expired revocations, {} remaining", before - revokedTokens.size(), revokedTokens.size());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int getRevokedTokenCount() { return revokedTokens.size(); }
+    public int getSubjectWatermarkCount() { return subjectWatermarks.size(); }
+}
@@ -0,0 +1,16 @@
+package arious.backend.Auth.Jwt;
+
+/**
+ * Why a bearer token was accepted or turned away.
+ */
+public enum TokenStatus {
+    VALID,
+    // No Authorization header, or not a Bearer one
+    MISSING,
+    // Not a compact JWS at all, or claims that do not decode
+    MALFORMED,
+    EXPIRED,
+    // Well-formed but not signed by any key in the ring
+    BAD_SIGNATURE,
+    REVOKED
+}
@@ -0,0 +1,74 @@
+package arious.backend.Auth.Jwt;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable result of a single signature check and claims decode.
+ * Everything the request path needs is copied out of the jjwt {@code Claims}
+ * map once, so callers never have to parse the same token again.
+ */
+public final class VerifiedToken {
+    private final String id;
+    private final String subject;
+    private final Set<String> roles;
+    private final Instant issuedAt;
+    private final Instant expiresAt;
+
+    // Derived lazily and shared by every request that presents this token
+    private volatile JwtPrincipal principal;
+
+    public VerifiedToken(String subject, Set<String> roles, Instant issuedAt, Instant expiresAt) {
+        this(null, subject, roles, issuedAt, expiresAt);
+    }
+
+    public VerifiedToken(String id, String subject, Set<String> roles, Instant issuedAt, Instant expiresAt) {
+        this.id = id;
+        this.subject = subject;
+        this.roles = roles == null ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(roles));
+        this.issuedAt = issuedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    // Roles are stored as a JSON array in the token, jjwt hands them back as a List
+    static Set<String> rolesFromClaim(Object rolesObj) {
+        Set<String> roles = new LinkedHashSet<>();
+        if (rolesObj instanceof List<?>) {
+            for (Object role : (List<?>) rolesObj) {
+                if (role instanceof String) {
+                    roles.add((String) role);
+                }
+            }
+        }
+        return roles;
+    }
+
+    // The jti claim, used to revoke this one token
+    public String getId() { return id; }
+    public String getSubject() { return subject; }
+    public Set<String> getRoles() { return roles; }
+    public Instant getIssuedAt() { return issuedAt; }
+    public Instant getExpiresAt() { return expiresAt; }
+
+    public JwtPrincipal toPrincipal() {
+        JwtPrincipal p = principal;
+        if (p == null) {
+            p = new JwtPrincipal(subject, roles);
+            principal = p;
+        }
+        return p;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt != null && expiresAt.toEpochMilli() <= nowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "VerifiedToken{id=" + id + ", subject=" + subject + ", roles=" + roles
+                + ", issuedAt=" + issuedAt + ", expiresAt=" + expiresAt + "}";
+    }
+}
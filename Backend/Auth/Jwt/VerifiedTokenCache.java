@@ -0,0 +1,243 @@
+package arious.backend.Auth.Jwt;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of tokens whose signature has already been checked.
+ *
+ * Entries are keyed by the SHA-256 of the raw token, so the cache never holds
+ * bearer tokens themselves, and a hit hands back the very same {@link VerifiedToken}
+ * the full parse produced. An entry is never served past the token's own {@code exp}.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    // Shared scratch buffers rather than a ThreadLocal: with virtual threads every request runs on
+    // a fresh thread, and a per-thread MessageDigest would be rebuilt on every call
+    private static final AtomicReferenceArray<DigestScratch> SCRATCH =
+            new AtomicReferenceArray<>(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) << 1);
+
+    private final ConcurrentHashMap<TokenDigest, VerifiedToken> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final boolean enabled;
+    private final int maxSize;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.enabled:true}") boolean enabled,
+                              @Value("${jwt.cache.max-size:10000}") int maxSize) {
+        this.enabled = enabled;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    /**
+     * @return the cached verification result, or {@code null} on a miss or once the token has expired
+     */
+    public VerifiedToken get(CharSequence token) {
+        return get(token, 0);
+    }
+
+    // Looks up {@code source[offset..]}, e.g. the token inside an Authorization header, without substring()
+    public VerifiedToken get(CharSequence source, int offset) {
+        if (!enabled) {
+            return null;
+        }
+        TokenDigest key = digest(source, offset);
+        if (key == null) {
+            misses.increment();
+            return null;
+        }
+        VerifiedToken cached = entries.get(key);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        if (cached.isExpired(System.currentTimeMillis())) {
+            if (entries.remove(key, cached)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached;
+    }
+
+    public void put(CharSequence token, VerifiedToken verified) {
+        put(token, 0, verified);
+    }
+
+    public void put(CharSequence source, int offset, VerifiedToken verified) {
+        if (!enabled || verified == null || verified.getExpiresAt() == null) {
+            return;
+        }
+        TokenDigest key = digest(source, offset);
+        if (key == null) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(key, verified);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    // Drops expired entries first, then arbitrary ones until we are back under 90% of the bound
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<Map.Entry<TokenDigest, VerifiedToken>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue().isExpired(now)) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+            it = entries.entrySet().iterator();
+            while (entries.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Hashes {@code token[offset..]} without copying it into a new String or byte array.
+     * Returns {@code null} for non-ASCII input, which can never be a valid compact JWT.
+     */
+    static TokenDigest digest(CharSequence token, int offset) {
+        int length = token.length() - offset;
+        if (length <= 0) {
+            return null;
+        }
+        DigestScratch scratch = acquireScratch();
+        try {
+            byte[] buffer = scratch.buffer(length);
+            for (int i = 0; i < length; i++) {
+                char c = token.charAt(offset + i);
+                if (c > 0x7F) {
+                    return null;
+                }
+                buffer[i] = (byte) c;
+            }
+            MessageDigest sha256 = scratch.sha256;
+            sha256.update(buffer, 0, length);
+            try {
+                sha256.digest(scratch.out, 0, 32);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            byte[] out = scratch.out;
+            return new TokenDigest(readLong(out, 0), readLong(out, 8), readLong(out, 16), readLong(out, 24));
+        } finally {
+            releaseScratch(scratch);
+        }
+    }
+
+    // Lock-free: take whatever a slot holds, starting at a random one; build a new scratch if all are busy
+    private static DigestScratch acquireScratch() {
+        int mask = SCRATCH.length() - 1;
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i <= mask; i++) {
+            DigestScratch scratch = SCRATCH.getAndSet((start + i) & mask, null);
+            if (scratch != null) {
+                return scratch;
+            }
+        }
+        return new DigestScratch();
+    }
+
+    private static void releaseScratch(DigestScratch scratch) {
+        int mask = SCRATCH.length() - 1;
+        int start = ThreadLocalRandom.current().nextInt();
+        for (int i = 0; i <= mask; i++) {
+            if (SCRATCH.compareAndSet((start + i) & mask, null, scratch)) {
+                return;
+            }
+        }
+    }
+
+    private static long readLong(byte[] b, int i) {
+        return ((long) b[i] << 56) | ((long) (b[i + 1] & 0xFF) << 48) | ((long) (b[i + 2] & 0xFF) << 40)
+                | ((long) (b[i + 3] & 0xFF) << 32) | ((long) (b[i + 4] & 0xFF) << 24)
+                | ((b[i + 5] & 0xFF) << 16) | ((b[i + 6] & 0xFF) << 8) | (b[i + 7] & 0xFF);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public int getMaxSize() { return maxSize; }
+    public int size() { return entries.size(); }
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+
+    private static final class DigestScratch {
+        final MessageDigest sha256;
+        final byte[] out = new byte[32];
+        byte[] in = new byte[512];
+
+        DigestScratch() {
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        byte[] buffer(int length) {
+            if (in.length < length) {
+                in = new byte[Math.max(length, in.length * 2)];
+            }
+            return in;
+        }
+    }
+
+    static final class TokenDigest {
+        private final long a, b, c, d;
+
+        TokenDigest(long a, long b, long c, long d) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TokenDigest)) return false;
+            TokenDigest other = (TokenDigest) o;
+            return a == other.a && b == other.b && c == other.c && d == other.d;
+        }
+
+        @Override
+        public int hashCode() {
+            // The digest is already uniformly distributed, any 32 bits will do
+            return (int) a;
+        }
+    }
+}
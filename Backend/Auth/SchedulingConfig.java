@@ -0,0 +1,12 @@
+package arious.backend.Auth;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the {@code @Scheduled} housekeeping jobs of the auth components (key rotation, cache reconciliation).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
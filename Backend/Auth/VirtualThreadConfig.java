@@ -0,0 +1,64 @@
+package arious.backend.Auth;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Virtual-thread request handling, switched on with {@code spring.threads.virtual.enabled=true}.
+ *
+ * Spring Boot then runs every Tomcat request and the scheduler on virtual threads, so a request
+ * blocked on Mongo no longer holds a platform thread, and in-flight requests are bounded by the
+ * Mongo connection pool instead of {@code server.tomcat.threads.max}. It needs a Java 21 runtime;
+ * on older JVMs Boot silently keeps the platform pool, which is logged below.
+ *
+ * Nothing on the auth path pins a carrier thread: the filter, caches and revocation list use
+ * concurrent maps and {@code ReentrantLock}, never {@code synchronized}, and the Mongo sync driver
+ * is virtual-thread friendly from 4.11 on. Keep {@code SecurityContextHolder} on its default
+ * thread-local strategy; the inheritable one copies the context into every thread created.
+ * BCrypt stays on the bounded {@code PasswordHasher} pool either way, since it is CPU-bound.
+ */
+@Configuration
+public class VirtualThreadConfig {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private final boolean virtualThreads;
+    private final Executor continuationExecutor;
+
+    public VirtualThreadConfig(@Value("${spring.threads.virtual.enabled:false}") boolean enabled) {
+        boolean supported = Runtime.version().feature() >= 21;
+        if (enabled && !supported) {
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads, using platform threads",
+                    Runtime.version().feature());
+        }
+        this.virtualThreads = enabled && supported;
+        this.continuationExecutor = createContinuationExecutor(virtualThreads);
+    }
+
+    /**
+     * Where blocking work that follows a password hash (Mongo writes, token issue) continues.
+     * With virtual threads it moves off the hashing pool so those threads only ever hash;
+     * otherwise it stays on the thread that completed the hash, as before.
+     * Not a bean on purpose: any {@code Executor} bean would replace Boot's applicationTaskExecutor.
+     */
+    public Executor getContinuationExecutor() {
+        return continuationExecutor;
+    }
+
+    private static Executor createContinuationExecutor(boolean virtualThreads) {
+        if (!virtualThreads) {
+            return Runnable::run;
+        }
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("auth-vt-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+}
@@ -0,0 +1,34 @@
+package arious.backend.Auth.audit;
+
+import arious.backend.Auth.user.UserPage;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/audit")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class AuditController {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final AuditQueryService auditQueryService;
+
+    public AuditController(AuditQueryService auditQueryService) {
+        this.auditQueryService = auditQueryService;
+    }
+
+    // Newest first, pass nextCursor back as after for the following page
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserPage<AuditEvent>> getEvents(@RequestParam(required = false) String email,
+                                                          @RequestParam(required = false) AuditEventType type,
+                                                          @RequestParam(required = false) String after,
+                                                          @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        return ResponseEntity.ok(auditQueryService.find(email, type, after, pageSize));
+    }
+}
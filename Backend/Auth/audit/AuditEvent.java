@@ -0,0 +1,48 @@
+package arious.backend.Auth.audit;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * One line of the authentication audit trail. The id is assigned when the event happens, so ids
+ * sort in event order even though events reach Mongo later and in batches, and the listing can
+ * page on {@code _id} alone.
+ */
+@Document(collection = AuditEvent.COLLECTION)
+@Data
+@NoArgsConstructor
+public class AuditEvent {
+    static final String COLLECTION = "auth_audit";
+
+    @Id
+    private String id;
+    private AuditEventType type;
+    // Who the event is about
+    private String userId;
+    private String email;
+    // Who caused it, for admin actions
+    private String actor;
+    private String ip;
+    private String detail;
+    // The TTL index expires events on this field
+    private Date at;
+
+    public static AuditEvent of(AuditEventType type, String userId, String email, String actor,
+                                String ip, String detail) {
+        AuditEvent event = new AuditEvent();
+        event.id = new ObjectId().toHexString();
+        event.type = type;
+        event.userId = userId;
+        event.email = email;
+        event.actor = actor;
+        event.ip = ip;
+        event.detail = detail;
+        event.at = new Date();
+        return event;
+    }
+}
@@ -0,0 +1,10 @@
+package arious.backend.Auth.audit;
+
+public enum AuditEventType {
+    LOGIN_SUCCESS,
+    LOGIN_FAILURE,
+    REGISTER,
+    ADMIN_CREATED,
+    ROLES_CHANGED,
+    USER_DELETED
+}
@@ -0,0 +1,200 @@
+package arious.backend.Auth.audit;
+
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.metrics.RateLimitedLogger;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write side of the audit trail. {@link #record} only puts the event into an
+ * {@link AuditRingBuffer}, so the request thread never waits on Mongo; a single background writer
+ * takes up to {@code audit.batch-size} events at a time and stores them with one insertMany.
+ *
+ * When the buffer is full the {@code audit.overflow} policy applies: {@code drop} discards the
+ * event at once, {@code block} makes the caller wait up to {@code audit.block-timeout-ms} for room
+ * and drops only after that. Dropped, delayed and failed events are counted, see AuthMeterBinder.
+ * On shutdown the writer stores what is still buffered before the Mongo client goes away.
+ */
+@Component
+public class AuditLog {
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+    private static final RateLimitedLogger failureLog = new RateLimitedLogger(logger, 1, 10_000);
+
+    // How long a blocked producer sleeps between attempts
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final AuditRingBuffer<AuditEvent> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long shutdownTimeoutMillis;
+    private final Timer mongoAuditInsert;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditLog(MongoTemplate mongoTemplate, AuthMetrics metrics,
+                    @Value("${audit.enabled:true}") boolean enabled,
+                    @Value("${audit.buffer-capacity:8192}") int capacity,
+                    @Value("${audit.overflow:drop}") String overflowPolicy,
+                    @Value("${audit.block-timeout-ms:100}") long blockTimeoutMillis,
+                    @Value("${audit.batch-size:256}") int batchSize,
+                    @Value("${audit.flush-interval-ms:200}") long flushIntervalMillis,
+                    @Value("${audit.shutdown-timeout-ms:5000}") long shutdownTimeoutMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.buffer = new AuditRingBuffer<>(capacity);
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ROOT));
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.mongoAuditInsert = metrics.mongoTimer("auditInsert");
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::writeLoop, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Audit log writing to {} in batches of {}, buffer {} events, overflow {}",
+                AuditEvent.COLLECTION, batchSize, buffer.capacity(), overflowPolicy);
+    }
+
+    public void record(AuditEventType type, String userId, String email, String actor, String ip, String detail) {
+        if (!enabled) {
+            return;
+        }
+        AuditEvent event = AuditEvent.of(type, userId, email, actor, ip, detail);
+        if (buffer.offer(event) || (overflowPolicy == OverflowPolicy.BLOCK && offerWithin(event))) {
+            enqueued.increment();
+            // Wake the writer early once a full batch is waiting, instead of at the next interval
+            if (buffer.size() >= batchSize) {
+                LockSupport.unpark(writer);
+            }
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private boolean offerWithin(AuditEvent event) {
+        delayed.increment();
+        LockSupport.unpark(writer);
+        long deadline = System.nanoTime() + blockTimeoutNanos;
+        while (System.nanoTime() < deadline) {
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            if (buffer.offer(event)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeLoop() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            int drained = buffer.drainTo(batch, batchSize);
+            if (drained > 0) {
+                write(batch);
+            }
+            // A full batch means more may be waiting, otherwise let the next one build up
+            if (drained < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        // Shutting down: store everything still buffered
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            write(batch);
+        }
+    }
+
+    private void write(List<AuditEvent> batch) {
+        try {
+            mongoAuditInsert.record(() -> mongoTemplate.insert(batch, AuditEvent.class));
+            written.add(batch.size());
+        } catch (RuntimeException e) {
+            // Not retried, the events are counted as lost
+            failed.add(batch.size());
+            failureLog.warn("Failed to write audit events: {}", e.getMessage());
+        } finally {
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(shutdownTimeoutMillis);
+        if (writer.isAlive()) {
+            logger.warn("Audit writer did not finish within {} ms, {} events may be lost",
+                    shutdownTimeoutMillis, buffer.size());
+        } else if (buffer.size() > 0) {
+            // Recorded after the writer's final drain, the writer is gone so this thread may consume
+            List<AuditEvent> rest = new ArrayList<>(batchSize);
+            while (buffer.drainTo(rest, batchSize) > 0) {
+                write(rest);
+            }
+        }
+    }
+
+    public int getBufferSize() {
+        return buffer.size();
+    }
+
+    public int getBufferCapacity() {
+        return buffer.capacity();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.sum();
+    }
+
+    // Events that found the buffer full and had to wait (block policy)
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+}
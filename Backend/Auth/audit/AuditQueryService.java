@@ -0,0 +1,71 @@
+package arious.backend.Auth.audit;
+
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.user.UserPage;
+import arious.backend.Auth.user.UserService;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read side of the audit trail: newest-first keyset pages over {@code _id}, optionally narrowed to
+ * one user or one event type. Each filter has a compound index ending in {@code _id}, so a page is
+ * one index range scan in the order it is returned, however far back the caller pages.
+ * Events expire after {@code audit.retention-days} through a TTL index.
+ */
+@Service
+public class AuditQueryService {
+    private static final Logger logger = LoggerFactory.getLogger(AuditQueryService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final long retentionDays;
+    private final Timer mongoAuditQuery;
+
+    public AuditQueryService(MongoTemplate mongoTemplate, AuthMetrics metrics,
+                             @Value("${audit.retention-days:90}") long retentionDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.retentionDays = retentionDays;
+        this.mongoAuditQuery = metrics.mongoTimer("auditQuery");
+    }
+
+    @PostConstruct
+    void ensureIndexes() {
+        IndexOperations indexes = mongoTemplate.indexOps(AuditEvent.class);
+        indexes.ensureIndex(new Index("at", Sort.Direction.ASC).named("at_ttl")
+                .expire(Duration.ofDays(retentionDays)));
+        indexes.ensureIndex(new Index().on("email", Sort.Direction.ASC).on("_id", Sort.Direction.DESC)
+                .named("email_id"));
+        indexes.ensureIndex(new Index().on("type", Sort.Direction.ASC).on("_id", Sort.Direction.DESC)
+                .named("type_id"));
+        logger.info("Verified audit indexes on {}, retention {} days", AuditEvent.COLLECTION, retentionDays);
+    }
+
+    public UserPage<AuditEvent> find(String email, AuditEventType type, String after, int limit) {
+        Query query = new Query();
+        if (email != null && !email.isEmpty()) {
+            query.addCriteria(Criteria.where("email").is(email));
+        }
+        if (type != null) {
+            query.addCriteria(Criteria.where("type").is(type));
+        }
+        if (after != null && !after.isEmpty()) {
+            query.addCriteria(Criteria.where("_id").lt(ObjectId.isValid(after) ? new ObjectId(after) : after));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "_id")).limit(limit + 1);
+        List<AuditEvent> events = mongoAuditQuery.record(() -> mongoTemplate.find(query, AuditEvent.class));
+        return UserService.toPage(events, limit, AuditEvent::getId);
+    }
+}
@@ -0,0 +1,109 @@
+package arious.backend.Auth.avatar;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * {@code /users/{id}/avatar}: the image travels as the raw request and response body, streamed
+ * between the socket and the {@link AvatarStore} without ever being held whole in memory.
+ *
+ * Downloads carry the blob id as a strong ETag. A conditional GET whose tag still matches is
+ * answered 304 from the cached user document alone, without touching the store. Clients that
+ * link to {@code ?v=<avatar id>} may cache for a year, since that URL can only ever mean those
+ * bytes; the plain URL is cached briefly and revalidated.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/users/{id}/avatar")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class AvatarController {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarController.class);
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate();
+
+    private final AvatarService avatarService;
+    private final CacheControl revalidate;
+
+    public AvatarController(AvatarService avatarService,
+                            @Value("${avatar.cache.max-age-seconds:300}") long maxAgeSeconds) {
+        this.avatarService = avatarService;
+        this.revalidate = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePrivate();
+    }
+
+    @GetMapping
+    public ResponseEntity<Resource> getAvatar(@PathVariable String id,
+                                              @RequestParam(name = "v", required = false) String version,
+                                              WebRequest request) {
+        Optional<AvatarRef> avatar = avatarService.find(id);
+        if (avatar.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        AvatarRef ref = avatar.get();
+        CacheControl cacheControl = ref.getId().equals(version) ? IMMUTABLE : revalidate;
+        // Sets the 304 status and ETag on the response itself when If-None-Match matches
+        if (request.checkNotModified(ref.getId())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        Optional<Resource> content = avatarService.open(ref);
+        if (content.isEmpty()) {
+            logger.warn("Avatar {} of user {} is missing from the store", ref.getId(), id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(ref.getId())
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(ref.getContentType()))
+                .contentLength(ref.getSize())
+                .header("X-Content-Type-Options", "nosniff")
+                .body(content.get());
+    }
+
+    // Any image/* or octet-stream body, the actual type is read from the bytes
+    @PutMapping
+    @PreAuthorize("hasRole('ADMIN') or @selfAccess.isSelf(#id, authentication)")
+    public ResponseEntity<?> uploadAvatar(@PathVariable String id, InputStream body,
+                                          @RequestHeader(value = "Content-Length", required = false) Long contentLength) {
+        if (contentLength != null && contentLength > avatarService.getMaxBytes()) {
+            return tooLarge(avatarService.getMaxBytes());
+        }
+        try {
+            return avatarService.upload(id, body)
+                    .<ResponseEntity<?>>map(ref -> ResponseEntity.ok().eTag(ref.getId()).body(ref))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (AvatarTooLargeException e) {
+            return tooLarge(e.getMaxBytes());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping
+    @PreAuthorize("hasRole('ADMIN') or @selfAccess.isSelf(#id, authentication)")
+    public ResponseEntity<?> deleteAvatar(@PathVariable String id) {
+        try {
+            return avatarService.remove(id)
+                    ? ResponseEntity.noContent().build()
+                    : ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static ResponseEntity<?> tooLarge(long maxBytes) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body("Avatar is larger than " + maxBytes + " bytes");
+    }
+}
@@ -0,0 +1,22 @@
+package arious.backend.Auth.avatar;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * What the user document keeps of its avatar: a reference into the {@link AvatarStore} plus the
+ * headers needed to serve it, a few dozen bytes instead of the inline image.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvatarRef {
+    // Blob id in the store. Every upload gets a new one, so it doubles as the ETag
+    private String id;
+    private String contentType;
+    private long size;
+    private Instant uploadedAt;
+}
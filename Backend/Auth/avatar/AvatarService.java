@@ -0,0 +1,189 @@
+package arious.backend.Auth.avatar;
+
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserCache;
+import arious.backend.Auth.user.UserService;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Avatars of users: the bytes go to the {@link AvatarStore}, the user document only gets an
+ * {@link AvatarRef}. The image type is taken from the first bytes of the upload, never from the
+ * client's Content-Type, so nothing but PNG, JPEG, GIF and WebP is ever served back.
+ */
+@Service
+public class AvatarService {
+
+    private static final int SNIFF_BYTES = 12;
+
+    private final AvatarStore avatarStore;
+    private final UserService userService;
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final long maxBytes;
+    private final Timer mongoAvatarUpdate;
+
+    public AvatarService(AvatarStore avatarStore, UserService userService, MongoTemplate mongoTemplate,
+                         UserCache userCache, AuthMetrics metrics,
+                         @Value("${avatar.max-bytes:2097152}") long maxBytes) {
+        this.avatarStore = avatarStore;
+        this.userService = userService;
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+        this.maxBytes = maxBytes;
+        this.mongoAvatarUpdate = metrics.mongoTimer("avatarUpdate");
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Served from the user cache, so a conditional GET usually costs no round-trip at all
+    public Optional<AvatarRef> find(String userId) {
+        return userService.findById(userId).map(User::getAvatar);
+    }
+
+    public Optional<Resource> open(AvatarRef avatar) {
+        return avatarStore.open(avatar.getId());
+    }
+
+    /**
+     * Streams the upload into the store and points the user at it, replacing the previous avatar
+     * and any legacy inline {@code profilePicture}.
+     *
+     * @return the new reference, or empty if the user does not exist
+     * @throws IllegalArgumentException if the content is not a supported image
+     * @throws AvatarTooLargeException if the content is over {@code avatar.max-bytes}
+     */
+    public Optional<AvatarRef> upload(String userId, InputStream content) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(content);
+        in.mark(SNIFF_BYTES);
+        String contentType = sniff(in.readNBytes(SNIFF_BYTES));
+        in.reset();
+        if (contentType == null) {
+            throw new IllegalArgumentException("Unsupported image type, expected PNG, JPEG, GIF or WebP");
+        }
+        CountingInputStream counted = new CountingInputStream(in, maxBytes);
+        String blobId = avatarStore.store(counted, contentType);
+        AvatarRef avatar = new AvatarRef(blobId, contentType, counted.count, Instant.now());
+
+        Update update = new Update().set("avatar", avatar).unset("profilePicture").inc("version", 1);
+        User before = swap(userId, update);
+        if (before == null) {
+            avatarStore.delete(blobId);
+            return Optional.empty();
+        }
+        discard(before);
+        return Optional.of(avatar);
+    }
+
+    // @return false if the user does not exist or had no avatar
+    public boolean remove(String userId) {
+        User before = swap(userId, new Update().unset("avatar").inc("version", 1));
+        if (before == null || before.getAvatar() == null) {
+            return false;
+        }
+        discard(before);
+        return true;
+    }
+
+    // Deletes the blob a replaced or deleted user document pointed at
+    public void discard(User before) {
+        if (before.getAvatar() != null) {
+            avatarStore.delete(before.getAvatar().getId());
+        }
+    }
+
+    /**
+     * Applies {@code update} and returns the user's avatar as it was before, in one findAndModify
+     * so two concurrent uploads each delete exactly the blob they replaced.
+     *
+     * @return the user projected to its avatar, or {@code null} if there is no such user
+     */
+    private User swap(String userId, Update update) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("avatar");
+        User before = mongoAvatarUpdate.record(() -> mongoTemplate.findAndModify(query, update, User.class));
+        userCache.invalidateId(userId);
+        return before;
+    }
+
+    // Magic numbers of the formats we accept
+    static String sniff(byte[] head) {
+        if (startsWith(head, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, 0, 'R', 'I', 'F', 'F') && startsWith(head, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int offset, int... magic) {
+        if (head.length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Counts what the store reads and stops it once the limit is passed
+    private static final class CountingInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        CountingInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                advance(n);
+            }
+            return n;
+        }
+
+        private void advance(int n) throws AvatarTooLargeException {
+            count += n;
+            if (count > limit) {
+                throw new AvatarTooLargeException(limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package arious.backend.Auth.avatar;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Where avatar bytes live, outside the users collection. Blobs are immutable: a new upload is a
+ * new id and the old one is deleted, which is what makes the id a safe ETag.
+ */
+public interface AvatarStore {
+
+    /**
+     * Streams {@code content} into the store without buffering it whole.
+     * An {@link IOException} thrown by the stream aborts the upload and leaves nothing behind.
+     *
+     * @return the id of the new blob
+     */
+    String store(InputStream content, String contentType) throws IOException;
+
+    // A lazily opened resource, the bytes are only read when the response body is written
+    Optional<Resource> open(String id);
+
+    void delete(String id);
+}
@@ -0,0 +1,20 @@
+package arious.backend.Auth.avatar;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading an upload that goes past {@code avatar.max-bytes}. It is an IOException so
+ * the store aborts the upload it is reading from, see {@link AvatarStore#store}.
+ */
+public class AvatarTooLargeException extends IOException {
+    private final long maxBytes;
+
+    public AvatarTooLargeException(long maxBytes) {
+        super("Avatar is larger than " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,63 @@
+package arious.backend.Auth.avatar;
+
+import com.mongodb.MongoGridFSException;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.types.ObjectId;
+import org.springframework.core.io.Resource;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * {@link AvatarStore} on GridFS, so every node sees the same blobs without extra infrastructure.
+ * Bytes are written and read in GridFS chunks (255 KB by default), never as one array.
+ */
+@Component
+public class GridFsAvatarStore implements AvatarStore {
+
+    private static final String FILENAME = "avatar";
+
+    private final GridFsTemplate gridFsTemplate;
+
+    public GridFsAvatarStore(GridFsTemplate gridFsTemplate) {
+        this.gridFsTemplate = gridFsTemplate;
+    }
+
+    @Override
+    public String store(InputStream content, String contentType) throws IOException {
+        try {
+            return gridFsTemplate.store(content, FILENAME, contentType).toHexString();
+        } catch (MongoGridFSException e) {
+            // The driver aborts the upload, deleting its chunks, and wraps what the stream threw
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Resource> open(String id) {
+        if (!ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+        GridFSFile file = gridFsTemplate.findOne(byId(id));
+        return file != null ? Optional.of(gridFsTemplate.getResource(file)) : Optional.empty();
+    }
+
+    @Override
+    public void delete(String id) {
+        if (ObjectId.isValid(id)) {
+            gridFsTemplate.delete(byId(id));
+        }
+    }
+
+    private static Query byId(String id) {
+        return new Query(Criteria.where("_id").is(new ObjectId(id)));
+    }
+}
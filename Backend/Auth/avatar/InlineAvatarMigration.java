@@ -0,0 +1,121 @@
+package arious.backend.Auth.avatar;
+
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserCache;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Moves the base64 images older users still carry inline in {@code profilePicture} into the
+ * {@link AvatarStore}, once the application is up. Each user is swapped only if the inline value
+ * is still the one that was read, and migrated users drop out of the query, so several nodes
+ * running this at the same time or a restart halfway through are harmless.
+ *
+ * Values that are not a base64 image (an external URL, say) are left in place and counted.
+ */
+@Component
+public class InlineAvatarMigration {
+    private static final Logger logger = LoggerFactory.getLogger(InlineAvatarMigration.class);
+
+    private static final String LEGACY_FIELD = "profilePicture";
+    private static final int BATCH_SIZE = 50;
+
+    private final MongoTemplate mongoTemplate;
+    private final AvatarStore avatarStore;
+    private final UserCache userCache;
+    private final boolean enabled;
+
+    public InlineAvatarMigration(MongoTemplate mongoTemplate, AvatarStore avatarStore, UserCache userCache,
+                                 @Value("${avatar.migrate-inline:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.avatarStore = avatarStore;
+        this.userCache = userCache;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        Query query = new Query(Criteria.where(LEGACY_FIELD).exists(true)).cursorBatchSize(BATCH_SIZE);
+        query.fields().include(LEGACY_FIELD);
+        int migrated = 0;
+        int skipped = 0;
+        try (Stream<Document> users = mongoTemplate.stream(query, Document.class,
+                mongoTemplate.getCollectionName(User.class))) {
+            Iterator<Document> it = users.iterator();
+            while (it.hasNext()) {
+                Document user = it.next();
+                if (migrate(user.get("_id"), user.get(LEGACY_FIELD))) {
+                    migrated++;
+                } else {
+                    skipped++;
+                }
+            }
+        }
+        if (migrated > 0 || skipped > 0) {
+            logger.info("Moved {} inline profile pictures to the avatar store, left {} in place", migrated, skipped);
+        }
+    }
+
+    private boolean migrate(Object id, Object inline) {
+        if (!(inline instanceof String)) {
+            return false;
+        }
+        byte[] image = decode((String) inline);
+        String contentType = image != null ? AvatarService.sniff(image) : null;
+        if (contentType == null) {
+            return false;
+        }
+        String blobId;
+        try {
+            blobId = avatarStore.store(new ByteArrayInputStream(image), contentType);
+        } catch (Exception e) {
+            logger.warn("Could not store the inline profile picture of user {}: {}", id, e.getMessage());
+            return false;
+        }
+        AvatarRef avatar = new AvatarRef(blobId, contentType, image.length, Instant.now());
+        Query unchanged = new Query(Criteria.where("_id").is(id).and(LEGACY_FIELD).is(inline));
+        Update update = new Update().set("avatar", avatar).unset(LEGACY_FIELD).inc("version", 1);
+        if (mongoTemplate.updateFirst(unchanged, update, User.class).getModifiedCount() == 0) {
+            // Changed or deleted since we read it, whatever it holds now is not ours to replace
+            avatarStore.delete(blobId);
+            return false;
+        }
+        userCache.invalidateId(id.toString());
+        return true;
+    }
+
+    // Accepts a data: URI or bare base64, null for anything else
+    static byte[] decode(String inline) {
+        String data = inline;
+        if (inline.startsWith("data:")) {
+            int comma = inline.indexOf(',');
+            if (comma < 0 || !inline.substring(0, comma).endsWith(";base64")) {
+                return null;
+            }
+            data = inline.substring(comma + 1);
+        }
+        try {
+            return Base64.getMimeDecoder().decode(data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
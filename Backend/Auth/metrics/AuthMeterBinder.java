@@ -0,0 +1,112 @@
+package arious.backend.Auth.metrics;
+
+import arious.backend.Auth.Jwt.TokenRevocationService;
+import arious.backend.Auth.Jwt.VerifiedTokenCache;
+import arious.backend.Auth.audit.AuditLog;
+import arious.backend.Auth.ratelimit.LocalRateLimitBackend;
+import arious.backend.Auth.ratelimit.LoginRateLimiter;
+import arious.backend.Auth.user.PasswordHasher;
+import arious.backend.Auth.user.UserCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the counters the auth components already keep (cache hit/miss/eviction, hashing pool
+ * depth, revocation list size, audit buffer). Meters read the existing getters at scrape time, so nothing extra
+ * happens per request.
+ */
+@Component
+public class AuthMeterBinder implements MeterBinder {
+
+    private final VerifiedTokenCache tokenCache;
+    private final UserCache userCache;
+    private final PasswordHasher passwordHasher;
+    private final TokenRevocationService revocationService;
+    private final LoginRateLimiter rateLimiter;
+    private final LocalRateLimitBackend localRateLimitBackend;
+    private final AuditLog auditLog;
+
+    public AuthMeterBinder(VerifiedTokenCache tokenCache, UserCache userCache, PasswordHasher passwordHasher,
+                           TokenRevocationService revocationService, LoginRateLimiter rateLimiter,
+                           LocalRateLimitBackend localRateLimitBackend, AuditLog auditLog) {
+        this.tokenCache = tokenCache;
+        this.userCache = userCache;
+        this.passwordHasher = passwordHasher;
+        this.revocationService = revocationService;
+        this.rateLimiter = rateLimiter;
+        this.localRateLimitBackend = localRateLimitBackend;
+        this.auditLog = auditLog;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        cache(registry, "token", tokenCache, "hit", VerifiedTokenCache::getHitCount);
+        cache(registry, "token", tokenCache, "miss", VerifiedTokenCache::getMissCount);
+        cache(registry, "token", tokenCache, "eviction", VerifiedTokenCache::getEvictionCount);
+        Gauge.builder("auth.cache.size", tokenCache, VerifiedTokenCache::size)
+                .tag("cache", "token").register(registry);
+
+        cache(registry, "user", userCache, "hit", UserCache::getHitCount);
+        cache(registry, "user", userCache, "miss", UserCache::getMissCount);
+        cache(registry, "user", userCache, "eviction", UserCache::getEvictionCount);
+
+        Gauge.builder("auth.password.queue.depth", passwordHasher, PasswordHasher::getQueueDepth)
+                .description("Hash jobs waiting for a hashing thread").register(registry);
+        Gauge.builder("auth.password.active", passwordHasher, PasswordHasher::getActiveCount)
+                .description("Hashing threads currently busy").register(registry);
+        FunctionCounter.builder("auth.password.rejected", passwordHasher, PasswordHasher::getRejectedCount)
+                .description("Hash jobs turned away with 503 because the queue was full").register(registry);
+
+        Gauge.builder("auth.revocation.tokens", revocationService, TokenRevocationService::getRevokedTokenCount)
+                .description("Revoked, not yet expired access tokens").register(registry);
+        Gauge.builder("auth.revocation.subjects", revocationService, TokenRevocationService::getSubjectWatermarkCount)
+                .description("Users with a revoke-before watermark").register(registry);
+
+        rateLimit(registry, rateLimiter, "allowed", LoginRateLimiter::getAllowedCount);
+        rateLimit(registry, rateLimiter, "rejected_ip", LoginRateLimiter::getRejectedIpCount);
+        rateLimit(registry, rateLimiter, "rejected_account", LoginRateLimiter::getRejectedAccountCount);
+        Gauge.builder("auth.ratelimit.buckets", localRateLimitBackend, LocalRateLimitBackend::size)
+                .description("Token buckets held in this process").register(registry);
+        FunctionCounter.builder("auth.ratelimit.evictions", localRateLimitBackend, LocalRateLimitBackend::getEvictionCount)
+                .description("Buckets dropped because the key cap was reached").register(registry);
+
+        Gauge.builder("auth.audit.buffer.size", auditLog, AuditLog::getBufferSize)
+                .description("Audit events waiting for the background writer").register(registry);
+        Gauge.builder("auth.audit.buffer.capacity", auditLog, AuditLog::getBufferCapacity)
+                .register(registry);
+        audit(registry, auditLog, "enqueued", AuditLog::getEnqueuedCount);
+        audit(registry, auditLog, "delayed", AuditLog::getDelayedCount);
+        audit(registry, auditLog, "dropped", AuditLog::getDroppedCount);
+        audit(registry, auditLog, "written", AuditLog::getWrittenCount);
+        audit(registry, auditLog, "failed", AuditLog::getFailedCount);
+    }
+
+    private static void audit(MeterRegistry registry, AuditLog auditLog, String result,
+                              ToDoubleFunction<AuditLog> count) {
+        FunctionCounter.builder("auth.audit.events", auditLog, count)
+                .tag("result", result)
+                .description("Audit events by what happened to them, delayed ones waited for buffer room")
+                .register(registry);
+    }
+
+    private static void rateLimit(MeterRegistry registry, LoginRateLimiter limiter, String result,
+                                  ToDoubleFunction<LoginRateLimiter> count) {
+        FunctionCounter.builder("auth.ratelimit.requests", limiter, count)
+                .tag("result", result)
+                .description("Login and register attempts seen by the rate limiter")
+                .register(registry);
+    }
+
+    private static <T> void cache(MeterRegistry registry, String cache, T source, String result,
+                                  ToDoubleFunction<T> count) {
+        FunctionCounter.builder("auth.cache.requests", source, count)
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,105 @@
+package arious.backend.Auth.metrics;
+
+import arious.backend.Auth.Jwt.TokenStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The meters the auth hot path records into. Every meter is registered up front and held in a
+ * field, so recording is a plain method call with no registry lookup, tag array or sample object.
+ * Callers time with {@code System.nanoTime()} and pass the elapsed nanos.
+ *
+ * Exposed through Actuator like any other Micrometer meter; with
+ * {@code micrometer-registry-prometheus} on the classpath and {@code prometheus} in
+ * {@code management.endpoints.web.exposure.include} they show up on {@code /actuator/prometheus}.
+ */
+@Component
+public class AuthMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer tokenVerify;
+    private final Timer tokenSign;
+    private final Timer userLoad;
+    private final Timer passwordMatches;
+    private final Timer passwordEncode;
+    private final Counter[] tokenResults;
+    private final Counter loginSuccess;
+    private final Counter loginFailure;
+    private final Counter loginBusy;
+    private final Counter loginThrottled;
+    private final ConcurrentHashMap<String, Timer> mongoTimers = new ConcurrentHashMap<>();
+
+    public AuthMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.tokenVerify = timer("auth.token.verify", "Signature check and claims decode, cache hits included");
+        this.tokenSign = timer("auth.token.sign", "Access token signing");
+        this.userLoad = timer("auth.user.load", "loadUserByUsername, cache hits included");
+        this.passwordMatches = Timer.builder("auth.password.hash").tag("op", "matches")
+                .description("PasswordEncoder work on the hashing pool").register(registry);
+        this.passwordEncode = Timer.builder("auth.password.hash").tag("op", "encode")
+                .description("PasswordEncoder work on the hashing pool").register(registry);
+
+        TokenStatus[] results = TokenStatus.values();
+        this.tokenResults = new Counter[results.length];
+        for (TokenStatus result : results) {
+            tokenResults[result.ordinal()] = Counter.builder("auth.tokens")
+                    .tag("result", result.name().toLowerCase(Locale.ROOT))
+                    .description("Bearer tokens checked, by outcome")
+                    .register(registry);
+        }
+        this.loginSuccess = loginCounter("success");
+        this.loginFailure = loginCounter("failure");
+        this.loginBusy = loginCounter("busy");
+        this.loginThrottled = loginCounter("throttled");
+    }
+
+    // For hand-wired code such as the benchmarks, records into a throwaway in-memory registry
+    public static AuthMetrics simple() {
+        return new AuthMetrics(new SimpleMeterRegistry());
+    }
+
+    private Timer timer(String name, String description) {
+        return Timer.builder(name).description(description).register(registry);
+    }
+
+    private Counter loginCounter(String result) {
+        return Counter.builder("auth.login").tag("result", result)
+                .description("Login attempts by outcome").register(registry);
+    }
+
+    public void recordTokenVerify(long nanos) { tokenVerify.record(nanos, TimeUnit.NANOSECONDS); }
+    public void recordTokenSign(long nanos) { tokenSign.record(nanos, TimeUnit.NANOSECONDS); }
+    public void recordUserLoad(long nanos) { userLoad.record(nanos, TimeUnit.NANOSECONDS); }
+    public void recordPasswordMatches(long nanos) { passwordMatches.record(nanos, TimeUnit.NANOSECONDS); }
+    public void recordPasswordEncode(long nanos) { passwordEncode.record(nanos, TimeUnit.NANOSECONDS); }
+
+    public void tokenResult(TokenStatus result) { tokenResults[result.ordinal()].increment(); }
+
+    public void loginSucceeded() { loginSuccess.increment(); }
+    public void loginFailed() { loginFailure.increment(); }
+    public void loginRejectedBusy() { loginBusy.increment(); }
+    public void loginThrottled() { loginThrottled.increment(); }
+
+    /**
+     * Timer for one kind of Mongo call in the user services, tagged {@code op}.
+     * The set of ops is small and fixed, callers keep the returned timer in a field.
+     */
+    public Timer mongoTimer(String op) {
+        return mongoTimers.computeIfAbsent(op, name -> Timer.builder("auth.mongo")
+                .tag("op", name)
+                .description("MongoDB round-trips made by the user services")
+                .register(registry));
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+}
@@ -0,0 +1,77 @@
+package arious.backend.Auth.metrics;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SLF4J logger wrapper that lets at most {@code permits} messages through per interval and only
+ * counts the rest, so a flood of bad tokens cannot turn logging into the bottleneck.
+ * The first message of the next interval reports how many were dropped. Suppressed calls cost
+ * a couple of volatile reads and a striped counter increment, and arguments are never formatted.
+ */
+public final class RateLimitedLogger {
+
+    private final Logger delegate;
+    private final int permits;
+    private final long intervalNanos;
+
+    private final AtomicLong windowStart;
+    private final AtomicLong used = new AtomicLong();
+    private final LongAdder suppressed = new LongAdder();
+
+    public RateLimitedLogger(Logger delegate, int permits, long intervalMillis) {
+        this.delegate = delegate;
+        this.permits = Math.max(1, permits);
+        this.intervalNanos = Math.max(1, intervalMillis) * 1_000_000L;
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    // Fixed-arity overloads so the hot paths do not build a varargs array just to be suppressed
+    public void warn(String message) {
+        if (delegate.isWarnEnabled() && acquire()) {
+            delegate.warn(message);
+        }
+    }
+
+    public void warn(String format, Object arg) {
+        if (delegate.isWarnEnabled() && acquire()) {
+            delegate.warn(format, arg);
+        }
+    }
+
+    public void warn(String format, Object... args) {
+        if (delegate.isWarnEnabled() && acquire()) {
+            delegate.warn(format, args);
+        }
+    }
+
+    public void error(String format, Object... args) {
+        if (delegate.isErrorEnabled() && acquire()) {
+            delegate.error(format, args);
+        }
+    }
+
+    private boolean acquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+            long dropped = suppressed.sumThenReset();
+            if (dropped > 0) {
+                delegate.warn("Suppressed {} similar log messages in the last {} ms", dropped, intervalNanos / 1_000_000L);
+            }
+        }
+        // Read first so a suppressed burst does not contend on the increment
+        if (used.get() < permits && used.incrementAndGet() <= permits) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+}
@@ -0,0 +1,38 @@
+package arious.backend.Auth.ratelimit;
+
+/**
+ * A token bucket: up to {@code capacity} requests in a burst, refilled at {@code perMinute} a minute.
+ */
+public final class BucketLimit {
+
+    private final String name;
+    private final int capacity;
+    private final int perMinute;
+    // Refill time of a single token
+    private final long emissionIntervalNanos;
+
+    public BucketLimit(String name, int capacity, int perMinute) {
+        if (capacity < 1 || perMinute < 1) {
+            throw new IllegalArgumentException("Rate limit " + name + " needs capacity and per-minute >= 1");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.perMinute = perMinute;
+        this.emissionIntervalNanos = 60_000_000_000L / perMinute;
+    }
+
+    public String getName() { return name; }
+    public int getCapacity() { return capacity; }
+    public int getPerMinute() { return perMinute; }
+    public long getEmissionIntervalNanos() { return emissionIntervalNanos; }
+
+    // How far ahead of now a bucket may run before it is empty
+    public long getBurstToleranceNanos() {
+        return emissionIntervalNanos * (capacity - 1);
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + capacity + ", " + perMinute + "/min)";
+    }
+}
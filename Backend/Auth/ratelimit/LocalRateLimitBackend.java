@@ -0,0 +1,120 @@
+package arious.backend.Auth.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process buckets. Each one is a single {@link AtomicLong} holding the time at which the bucket
+ * will be full again (GCRA, the cell-rate form of a token bucket), so taking a token is one CAS and
+ * there is no per-bucket lock or refill thread.
+ *
+ * A bucket that has refilled completely carries no information and is dropped by {@link #purgeIdle};
+ * on top of that the number of keys is capped, so a spray of spoofed emails cannot grow the map
+ * without bound.
+ */
+@Component
+public class LocalRateLimitBackend implements RateLimitBackend {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder evictions = new LongAdder();
+    private final int maxKeys;
+
+    // nanoTime has an arbitrary origin, shift it so 0 can mean "never used"
+    private final long origin = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+
+    public LocalRateLimitBackend(@Value("${auth.rate-limit.max-keys:100000}") int maxKeys) {
+        this.maxKeys = Math.max(1, maxKeys);
+    }
+
+    @Override
+    public long tryAcquire(String key, BucketLimit limit) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                evict();
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        long interval = limit.getEmissionIntervalNanos();
+        long tolerance = limit.getBurstToleranceNanos();
+        while (true) {
+            long now = System.nanoTime() - origin;
+            long fullAt = bucket.get();
+            long base = Math.max(fullAt, now);
+            // Allowed while the bucket would not run more than the burst ahead of the clock
+            long wait = base - tolerance - now;
+            if (wait > 0) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            if (bucket.compareAndSet(fullAt, base + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void refund(String key, BucketLimit limit) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            return;
+        }
+        while (true) {
+            long now = System.nanoTime() - origin;
+            long fullAt = bucket.get();
+            // Already full, or evicted and recreated meanwhile: nothing to give back
+            if (fullAt <= now) {
+                return;
+            }
+            if (bucket.compareAndSet(fullAt, Math.max(now, fullAt - limit.getEmissionIntervalNanos()))) {
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${auth.rate-limit.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        long now = System.nanoTime() - origin;
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    // Idle buckets first, then arbitrary ones until we are back under 90% of the cap
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = System.nanoTime() - origin;
+            int target = maxKeys - Math.max(1, maxKeys / 10);
+            Iterator<Map.Entry<String, AtomicLong>> it = buckets.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue().get() <= now) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+            // Forgetting a busy bucket hands it a fresh burst, so this only happens under a key flood
+            it = buckets.entrySet().iterator();
+            while (buckets.size() > target && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() { return buckets.size(); }
+    public int getMaxKeys() { return maxKeys; }
+    public long getEvictionCount() { return evictions.sum(); }
+}
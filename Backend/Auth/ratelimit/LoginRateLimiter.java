@@ -0,0 +1,113 @@
+package arious.backend.Auth.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throttles {@code /auth/login} and {@code /auth/register} before they touch Mongo or BCrypt.
+ *
+ * Login takes a token from the client IP's bucket, so one address cannot spray many accounts, and
+ * one from the account's bucket (normalized email), so many addresses cannot keep guessing one
+ * account. The account token is reserved up front, which caps even a parallel burst of guesses at
+ * the bucket's capacity, and given back by {@link #refundLogin} when the attempt does not end in a
+ * wrong password: successful logins and attempts that fail for other reasons cost the account nothing.
+ * Register is limited per IP only. The client IP is whatever the servlet container or WebFlux
+ * reports; behind a proxy set {@code server.forward-headers-strategy} so it is the real client,
+ * raw {@code X-Forwarded-For} is never trusted here.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final RateLimitBackend backend;
+    private final boolean enabled;
+    private final BucketLimit loginPerIp;
+    private final BucketLimit loginPerAccount;
+    private final BucketLimit registerPerIp;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedIp = new LongAdder();
+    private final LongAdder rejectedAccount = new LongAdder();
+
+    public LoginRateLimiter(RateLimitBackend backend,
+                            @Value("${auth.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${auth.rate-limit.login.ip.capacity:20}") int loginIpCapacity,
+                            @Value("${auth.rate-limit.login.ip.per-minute:20}") int loginIpPerMinute,
+                            @Value("${auth.rate-limit.login.account.capacity:5}") int loginAccountCapacity,
+                            @Value("${auth.rate-limit.login.account.per-minute:5}") int loginAccountPerMinute,
+                            @Value("${auth.rate-limit.register.ip.capacity:5}") int registerIpCapacity,
+                            @Value("${auth.rate-limit.register.ip.per-minute:5}") int registerIpPerMinute) {
+        this.backend = backend;
+        this.enabled = enabled;
+        this.loginPerIp = new BucketLimit("login-ip", loginIpCapacity, loginIpPerMinute);
+        this.loginPerAccount = new BucketLimit("login-account", loginAccountCapacity, loginAccountPerMinute);
+        this.registerPerIp = new BucketLimit("register-ip", registerIpCapacity, registerIpPerMinute);
+    }
+
+    /**
+     * @return {@code 0} if the attempt may go ahead, otherwise the seconds to put in {@code Retry-After}
+     */
+    public long checkLogin(String clientIp, String email) {
+        if (!enabled) {
+            return 0;
+        }
+        long waitMillis = backend.tryAcquire("login:ip:" + clientIp, loginPerIp);
+        if (waitMillis > 0) {
+            rejectedIp.increment();
+            return retryAfterSeconds(waitMillis);
+        }
+        String account = normalizeEmail(email);
+        if (account != null) {
+            // Reserved before the password check, refunded unless the password turns out wrong
+            waitMillis = backend.tryAcquire("login:account:" + account, loginPerAccount);
+            if (waitMillis > 0) {
+                rejectedAccount.increment();
+                return retryAfterSeconds(waitMillis);
+            }
+        }
+        allowed.increment();
+        return 0;
+    }
+
+    // Gives back the account token checkLogin reserved, for an attempt that did not end in a wrong password
+    public void refundLogin(String email) {
+        String account = normalizeEmail(email);
+        if (enabled && account != null) {
+            backend.refund("login:account:" + account, loginPerAccount);
+        }
+    }
+
+    public long checkRegister(String clientIp) {
+        if (!enabled) {
+            return 0;
+        }
+        long waitMillis = backend.tryAcquire("register:ip:" + clientIp, registerPerIp);
+        if (waitMillis > 0) {
+            rejectedIp.increment();
+            return retryAfterSeconds(waitMillis);
+        }
+        allowed.increment();
+        return 0;
+    }
+
+    // "  Alice@Example.COM " and "alice@example.com" share a bucket
+    static String normalizeEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String trimmed = email.trim();
+        return trimmed.isEmpty() ? null : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private static long retryAfterSeconds(long waitMillis) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999));
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public long getAllowedCount() { return allowed.sum(); }
+    public long getRejectedIpCount() { return rejectedIp.sum(); }
+    public long getRejectedAccountCount() { return rejectedAccount.sum(); }
+}
@@ -0,0 +1,22 @@
+package arious.backend.Auth.ratelimit;
+
+/**
+ * Storage for the token buckets behind {@link LoginRateLimiter}.
+ * {@link LocalRateLimitBackend} keeps them in process memory, so every node enforces its own share
+ * of the limit; a multi-node deployment provides its own {@code @Primary} bean backed by a shared
+ * store (a Redis script, for example) to enforce it cluster-wide.
+ */
+public interface RateLimitBackend {
+
+    /**
+     * Takes one token from the bucket for {@code key}, creating a full bucket on first use.
+     *
+     * @return {@code 0} if the token was granted, otherwise how many milliseconds until one is available
+     */
+    long tryAcquire(String key, BucketLimit limit);
+
+    /**
+     * Gives back one token granted by {@link #tryAcquire}, never filling the bucket past its capacity.
+     */
+    void refund(String key, BucketLimit limit);
+}
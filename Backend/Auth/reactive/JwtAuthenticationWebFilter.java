@@ -0,0 +1,67 @@
+package arious.backend.Auth.reactive;
+
+import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.Jwt.PublicRoutes;
+import arious.backend.Auth.Jwt.VerifiedToken;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * WebFlux port of {@code JwtAuthenticationFilter}, sharing {@link JwtUtil} (signature check,
+ * verified-token cache, revocation) and {@link PublicRoutes} with the servlet stack. The principal
+ * is handed downstream through the Reactor context instead of a thread-local.
+ */
+public class JwtAuthenticationWebFilter implements WebFilter {
+    private final JwtUtil jwtUtil;
+    private final ReactiveUserDetailsService userDetailsService;
+    private final PublicRoutes publicRoutes;
+
+    public JwtAuthenticationWebFilter(JwtUtil jwtUtil, ReactiveUserDetailsService userDetailsService,
+                                      PublicRoutes publicRoutes) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.publicRoutes = publicRoutes;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        HttpMethod method = request.getMethod();
+
+        // Skip token validation for OPTIONS requests and public endpoints
+        if (HttpMethod.OPTIONS.equals(method)
+                || publicRoutes.isPublic(request.getPath().pathWithinApplication().value(), method.name())) {
+            return chain.filter(exchange);
+        }
+
+        // Signature work is CPU-only and usually a cache hit, fine to do on the event loop.
+        // Missing, malformed, expired and revoked tokens are counted and logged inside JwtUtil
+        VerifiedToken token = jwtUtil.verifyBearer(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        if (token == null || token.getSubject() == null) {
+            return chain.filter(exchange);
+        }
+
+        // Stateless mode trusts the signed roles claim and skips the database entirely
+        Mono<UserDetails> principal = jwtUtil.isStatelessPrincipal()
+                ? Mono.just(token.toPrincipal())
+                : userDetailsService.findByUsername(token.getSubject());
+
+        // An unknown user continues unauthenticated, like a missing token
+        return principal
+                .map(userDetails -> ReactiveSecurityContextHolder.withAuthentication(
+                        UsernamePasswordAuthenticationToken.authenticated(
+                                userDetails, null, userDetails.getAuthorities())))
+                .defaultIfEmpty(Context.empty())
+                .flatMap(context -> chain.filter(exchange).contextWrite(context));
+    }
+}
@@ -0,0 +1,241 @@
+package arious.backend.Auth.reactive;
+
+import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.audit.AuditEventType;
+import arious.backend.Auth.audit.AuditLog;
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.ratelimit.LoginRateLimiter;
+import arious.backend.Auth.user.AuthResponse;
+import arious.backend.Auth.user.LoginRequest;
+import arious.backend.Auth.user.PasswordHashingBusyException;
+import arious.backend.Auth.user.RefreshRequest;
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Non-blocking {@code /auth} endpoints for the {@code reactive} profile, same request and response
+ * shapes as the servlet {@code AuthController}. Refresh-token families go through
+ * {@link ReactiveRefreshTokenService}, so no request blocks a thread on Mongo.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/auth")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class ReactiveAuthController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAuthController.class);
+
+    private final ReactiveUserService userService;
+    private final JwtUtil jwtUtil;
+    private final ReactivePasswordHasher passwordHasher;
+    private final ReactiveRefreshTokenService refreshTokenService;
+    private final AuthMetrics metrics;
+    private final LoginRateLimiter rateLimiter;
+    private final AuditLog auditLog;
+
+    public ReactiveAuthController(ReactiveUserService userService, JwtUtil jwtUtil,
+                                  ReactivePasswordHasher passwordHasher, ReactiveRefreshTokenService refreshTokenService,
+                                  AuthMetrics metrics, LoginRateLimiter rateLimiter, AuditLog auditLog) {
+        this.userService = userService;
+        this.jwtUtil = jwtUtil;
+        this.passwordHasher = passwordHasher;
+        this.refreshTokenService = refreshTokenService;
+        this.metrics = metrics;
+        this.rateLimiter = rateLimiter;
+        this.auditLog = auditLog;
+    }
+
+    @PostMapping("/register")
+    public Mono<ResponseEntity<?>> register(@RequestBody User user, ServerHttpRequest request) {
+        String ip = clientIp(request);
+        long retryAfter = rateLimiter.checkRegister(ip);
+        if (retryAfter > 0) {
+            return Mono.just(tooManyRequests(retryAfter));
+        }
+        logger.info("Register request received: email={}, name={}", user.getEmail(), user.getName());
+        UserService.asNewUser(user);
+
+        if (user.getRoles() == null) {
+            user.setRoles(new HashSet<>());
+        }
+        if (user.getRoles().isEmpty()) {
+            user.getRoles().add("USER");
+        }
+
+        return passwordHasher.encode(user.getPassword())
+                .flatMap(encoded -> {
+                    user.setPassword(encoded);
+                    return userService.registerEncodedUser(user);
+                })
+                .flatMap(savedUser -> issueTokens(savedUser, "user"))
+                .<ResponseEntity<?>>map(response -> {
+                    auditLog.record(AuditEventType.REGISTER, response.getUserId(), response.getEmail(), null, ip, null);
+                    logger.info("User registered successfully: {}", response.getEmail());
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof PasswordHashingBusyException) {
+                        return Mono.just(busy((PasswordHashingBusyException) e));
+                    }
+                    logger.error("Registration failed: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.badRequest().body(e.getMessage()));
+                });
+    }
+
+    @PostMapping("/login")
+    public Mono<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest, ServerHttpRequest request) {
+        // Throttled before any Mongo read or BCrypt work
+        String ip = clientIp(request);
+        long retryAfter = rateLimiter.checkLogin(ip, loginRequest.getEmail());
+        if (retryAfter > 0) {
+            metrics.loginThrottled();
+            auditLog.record(AuditEventType.LOGIN_FAILURE, null, loginRequest.getEmail(), null, ip, "throttled");
+            return Mono.just(tooManyRequests(retryAfter));
+        }
+        logger.info("Login attempt for email: {}", loginRequest.getEmail());
+
+        return userService.findByEmail(loginRequest.getEmail())
+                .flatMap(user -> passwordHasher.matches(loginRequest.getPassword(), user.getPassword())
+                        .flatMap(matches -> {
+                            if (!matches) {
+                                logger.warn("Invalid password for email: {}", loginRequest.getEmail());
+                                metrics.loginFailed();
+                                auditLog.record(AuditEventType.LOGIN_FAILURE, user.getId(), user.getEmail(), null, ip,
+                                        "bad password");
+                                return Mono.just(invalidCredentials());
+                            }
+                            upgradePasswordHash(user, loginRequest.getPassword());
+                            String role = user.getRoles().contains("ADMIN") ? "admin" : "user";
+                            logger.info("Login successful for email: {} with role: {}", loginRequest.getEmail(), role);
+                            return issueTokens(user, role)
+                                    .doOnNext(response -> {
+                                        metrics.loginSucceeded();
+                                        rateLimiter.refundLogin(loginRequest.getEmail());
+                                        auditLog.record(AuditEventType.LOGIN_SUCCESS, user.getId(), user.getEmail(),
+                                                null, ip, null);
+                                    })
+                                    .<ResponseEntity<?>>map(ResponseEntity::ok);
+                        }))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    logger.warn("User not found for email: {}", loginRequest.getEmail());
+                    metrics.loginFailed();
+                    auditLog.record(AuditEventType.LOGIN_FAILURE, null, loginRequest.getEmail(), null, ip, "unknown user");
+                    return invalidCredentials();
+                }))
+                .onErrorResume(e -> {
+                    rateLimiter.refundLogin(loginRequest.getEmail());
+                    if (e instanceof PasswordHashingBusyException) {
+                        metrics.loginRejectedBusy();
+                        return Mono.just(busy((PasswordHashingBusyException) e));
+                    }
+                    metrics.loginFailed();
+                    logger.error("Login error: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Login failed: " + e.getMessage()));
+                });
+    }
+
+    // Fire and forget, like the servlet controller: a busy pool or a lost race just skips the upgrade
+    private void upgradePasswordHash(User user, String rawPassword) {
+        String currentHash = user.getPassword();
+        if (!passwordHasher.needsUpgrade(currentHash)) {
+            return;
+        }
+        passwordHasher.encode(rawPassword)
+                .flatMap(newHash -> userService.updatePasswordHash(user.getId(), currentHash, newHash))
+                .subscribe(updated -> {
+                    if (updated) {
+                        logger.info("Upgraded password hash for email: {}", user.getEmail());
+                    }
+                }, e -> logger.debug("Password hash upgrade skipped for {}: {}", user.getEmail(), e.getMessage()));
+    }
+
+    // The access token is minted from the user as it is now, not from the family's login-time snapshot
+    @PostMapping("/refresh")
+    public Mono<ResponseEntity<?>> refresh(@RequestBody RefreshRequest refreshRequest) {
+        return refreshTokenService.rotate(refreshRequest.getRefreshToken())
+                .flatMap(rotation -> {
+                    String userId = rotation.getFamily().getUserId();
+                    return userService.findDetail(userId)
+                            .<ResponseEntity<?>>map(user -> {
+                                Set<String> roles = user.getRoles() != null ? user.getRoles() : Set.of();
+                                String token = jwtUtil.generateToken(user.getEmail(), roles);
+                                String role = roles.contains("ADMIN") ? "admin" : "user";
+                                return ResponseEntity.ok(new AuthResponse(token, rotation.getRefreshToken(),
+                                        jwtUtil.getExpiration(), user.getId(), user.getName(), user.getEmail(), role,
+                                        roles, "/dashboard"));
+                            })
+                            // Deleted since the login, nothing of theirs may be refreshed again
+                            .switchIfEmpty(refreshTokenService.revokeAllForUser(userId).then(Mono.empty()));
+                })
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token"))
+                .onErrorResume(e -> {
+                    logger.error("Refresh error: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Refresh failed: " + e.getMessage()));
+                });
+    }
+
+    @PostMapping("/logout")
+    public Mono<ResponseEntity<?>> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+                                          @RequestBody(required = false) RefreshRequest refreshRequest) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwtUtil.revoke(authHeader.substring(7));
+        }
+        Mono<Boolean> refresh = refreshRequest != null && refreshRequest.getRefreshToken() != null
+                ? refreshTokenService.revoke(refreshRequest.getRefreshToken())
+                : Mono.just(false);
+        return refresh
+                .<ResponseEntity<?>>thenReturn(ResponseEntity.noContent().build())
+                .onErrorResume(e -> {
+                    logger.error("Logout error: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Logout failed: " + e.getMessage()));
+                });
+    }
+
+    private Mono<AuthResponse> issueTokens(User user, String access) {
+        String token = jwtUtil.generateToken(user);
+        return refreshTokenService.issue(user)
+                .map(refresh -> new AuthResponse(token, refresh.getRefreshToken(), jwtUtil.getExpiration(), user.getId(),
+                        user.getName(), user.getEmail(), access, user.getRoles(), "/dashboard"));
+    }
+
+    private static ResponseEntity<?> invalidCredentials() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
+    }
+
+    // Peer address of the connection, shared with ReactiveUserController
+    static String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null) {
+            return "unknown";
+        }
+        return remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+    }
+
+    private static ResponseEntity<?> tooManyRequests(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Too many attempts, try again later");
+    }
+
+    private static ResponseEntity<?> busy(PasswordHashingBusyException e) {
+        logger.warn("Password hashing pool saturated, rejecting request");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+}
@@ -0,0 +1,82 @@
+package arious.backend.Auth.reactive;
+
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.user.PasswordHashingBusyException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Reactive counterpart of {@code PasswordHasher}: BCrypt runs on its own bounded elastic scheduler,
+ * never on the event loop. Thread and queue caps come from the same properties, and a full queue
+ * fails fast with {@link PasswordHashingBusyException} so the handlers can answer 503.
+ */
+@Component
+@Profile("reactive")
+public class ReactivePasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final Scheduler scheduler;
+    private final int retryAfterSeconds;
+    private final AuthMetrics metrics;
+
+    private final LongAdder rejected = new LongAdder();
+
+    public ReactivePasswordHasher(@Lazy PasswordEncoder passwordEncoder,
+                                  @Value("${password.hashing.threads:0}") int threads,
+                                  @Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${password.hashing.retry-after-seconds:1}") int retryAfterSeconds,
+                                  AuthMetrics metrics) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.scheduler = Schedulers.newBoundedElastic(poolSize, Math.max(1, queueCapacity), "password-hasher");
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.metrics = metrics;
+    }
+
+    public Mono<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword), metrics::recordPasswordMatches);
+    }
+
+    public Mono<String> encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword), metrics::recordPasswordEncode);
+    }
+
+    public boolean needsUpgrade(String encodedPassword) {
+        return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> Mono<T> submit(Callable<T> work, LongConsumer timer) {
+        return Mono.fromCallable(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        return work.call();
+                    } finally {
+                        timer.accept(System.nanoTime() - start);
+                    }
+                })
+                .subscribeOn(scheduler)
+                .onErrorMap(RejectedExecutionException.class, e -> {
+                    rejected.increment();
+                    return new PasswordHashingBusyException(retryAfterSeconds);
+                });
+    }
+
+    public long getRejectedCount() { return rejected.sum(); }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.dispose();
+    }
+}
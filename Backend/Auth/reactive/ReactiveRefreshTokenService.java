@@ -0,0 +1,117 @@
+package arious.backend.Auth.reactive;
+
+import arious.backend.Auth.Jwt.RefreshTokenFamily;
+import arious.backend.Auth.Jwt.RefreshTokenService;
+import arious.backend.Auth.Jwt.RefreshTokenService.Rotation;
+import arious.backend.Auth.user.User;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Non-blocking port of {@link RefreshTokenService} for the {@code reactive} profile: same token
+ * format, same documents and the same queries ({@link RefreshTokenService#rotateQuery} and friends),
+ * issued through the reactive driver so a refresh or logout never leaves the event loop.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveRefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveRefreshTokenService.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Value("${jwt.refresh.expiration-ms:1209600000}")
+    private long refreshExpiration;
+
+    @Value("${jwt.refresh.reuse-grace-ms:10000}")
+    private long reuseGrace;
+
+    public ReactiveRefreshTokenService(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Startup only, before the server accepts connections
+    @PostConstruct
+    void ensureIndexes() {
+        Flux.fromIterable(RefreshTokenService.indexes())
+                .concatMap(index -> mongoTemplate.indexOps(RefreshTokenFamily.class).ensureIndex(index))
+                .then()
+                .block(Duration.ofSeconds(30));
+    }
+
+    public Mono<Rotation> issue(User user) {
+        String secret = RefreshTokenService.newSecret();
+        RefreshTokenFamily family = RefreshTokenService.newFamily(user, secret, new Date(), refreshExpiration);
+        return mongoTemplate.insert(family)
+                .map(inserted -> new Rotation(inserted.getId() + "." + secret, inserted));
+    }
+
+    // Empty if the token is unknown, expired, revoked or replayed; only a replay revokes the family,
+    // see RefreshTokenService#isReplay
+    public Mono<Rotation> rotate(String refreshToken) {
+        String[] parts = RefreshTokenService.split(refreshToken);
+        if (parts == null) {
+            return Mono.empty();
+        }
+        String familyId = parts[0];
+        String nextSecret = RefreshTokenService.newSecret();
+        Date now = new Date();
+
+        return mongoTemplate.findAndModify(RefreshTokenService.rotateQuery(familyId, parts[1], now),
+                        RefreshTokenService.rotateUpdate(parts[1], nextSecret, now),
+                        FindAndModifyOptions.options().returnNew(true), RefreshTokenFamily.class)
+                .map(family -> new Rotation(familyId + "." + nextSecret, family))
+                .switchIfEmpty(mongoTemplate.findOne(RefreshTokenService.retiredHashesQuery(familyId), RefreshTokenFamily.class)
+                        .filter(family -> RefreshTokenService.isReplay(family, parts[1], now, reuseGrace))
+                        .flatMap(family -> revokeFamily(familyId))
+                        .doOnNext(revoked -> {
+                            if (revoked) {
+                                logger.warn("Refresh token reuse detected, revoked family {}", familyId);
+                            }
+                        })
+                        .then(Mono.empty()));
+    }
+
+    // Logout, only for the family's current token, see RefreshTokenService#revoke
+    public Mono<Boolean> revoke(String refreshToken) {
+        String[] parts = RefreshTokenService.split(refreshToken);
+        if (parts == null) {
+            return Mono.just(false);
+        }
+        return mongoTemplate.findOne(RefreshTokenService.currentHashQuery(parts[0]), RefreshTokenFamily.class)
+                .filter(family -> RefreshTokenService.matches(parts[1], family.getTokenHash()))
+                .flatMap(family -> revokeFamily(parts[0]))
+                .defaultIfEmpty(false);
+    }
+
+    public Mono<Long> revokeAllForUser(String userId) {
+        return revokeAllForUsers(List.of(userId));
+    }
+
+    public Mono<Long> revokeAllForUsers(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return mongoTemplate.updateMulti(RefreshTokenService.liveFamiliesOf(userIds),
+                        RefreshTokenService.revokedUpdate(), RefreshTokenFamily.class)
+                .map(result -> result.getModifiedCount());
+    }
+
+    private Mono<Boolean> revokeFamily(String familyId) {
+        return mongoTemplate.updateFirst(RefreshTokenService.liveFamily(familyId),
+                        RefreshTokenService.revokedUpdate(), RefreshTokenFamily.class)
+                .map(result -> result.getModifiedCount() > 0);
+    }
+}
@@ -0,0 +1,182 @@
+package arious.backend.Auth.reactive;
+
+import arious.backend.Auth.Jwt.TokenRevocationService;
+import arious.backend.Auth.audit.AuditEventType;
+import arious.backend.Auth.audit.AuditLog;
+import arious.backend.Auth.avatar.AvatarService;
+import arious.backend.Auth.user.AdminSetupGuard;
+import arious.backend.Auth.user.RoleCounts;
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserDetail;
+import arious.backend.Auth.user.UserPage;
+import arious.backend.Auth.user.UserSummary;
+import arious.backend.Auth.user.VersionTag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Non-blocking {@code /users} endpoints for the {@code reactive} profile, mirroring the servlet
+ * {@code UserController}. The export is a plain {@link Flux} rendered as NDJSON by WebFlux, so the
+ * Mongo cursor is drained only as fast as the client reads.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/users")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
+public class ReactiveUserController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserController.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final ReactiveUserService userService;
+    private final TokenRevocationService revocationService;
+    private final ReactiveRefreshTokenService refreshTokenService;
+    private final RoleCounts roleCounts;
+    private final AvatarService avatarService;
+    private final AuditLog auditLog;
+    private final AdminSetupGuard adminSetupGuard;
+
+    public ReactiveUserController(ReactiveUserService userService, TokenRevocationService revocationService,
+                                  ReactiveRefreshTokenService refreshTokenService, RoleCounts roleCounts,
+                                  AvatarService avatarService, AuditLog auditLog, AdminSetupGuard adminSetupGuard) {
+        this.userService = userService;
+        this.revocationService = revocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.roleCounts = roleCounts;
+        this.avatarService = avatarService;
+        this.auditLog = auditLog;
+        this.adminSetupGuard = adminSetupGuard;
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<UserPage<UserSummary>>> getAllUsers(@RequestParam(required = false) String after,
+                                                                   @RequestParam(defaultValue = "50") int limit,
+                                                                   ServerWebExchange exchange) {
+        int pageSize = limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        return userService.listUsers(after, pageSize)
+                .map(page -> conditional(VersionTag.of(page), page, exchange));
+    }
+
+    @GetMapping("/by-role/{role}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<UserPage<UserSummary>>> getUsersByRole(@PathVariable String role,
+                                                                      @RequestParam(required = false) String after,
+                                                                      @RequestParam(defaultValue = "50") int limit,
+                                                                      ServerWebExchange exchange) {
+        int pageSize = limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        return userService.listUsersByRole(role, after, pageSize)
+                .map(page -> conditional(VersionTag.of(page), page, exchange));
+    }
+
+    @GetMapping("/role-counts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Map<String, Long> getRoleCounts() {
+        return roleCounts.snapshot();
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    public Flux<UserSummary> exportUsers() {
+        logger.info("Exporting all users as NDJSON");
+        return userService.streamUsers();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDetail>> getUserById(@PathVariable String id, ServerWebExchange exchange) {
+        return userService.findDetail(id)
+                .map(user -> conditional(VersionTag.of(user.getVersion()), user, exchange))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // Same tags as the servlet UserViews, a matching If-None-Match gets a 304 without a body
+    private static <T> ResponseEntity<T> conditional(String etag, T view, ServerWebExchange exchange) {
+        if (exchange.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(view);
+    }
+
+    @PutMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN') or #id == authentication.principal")
+    public Mono<ResponseEntity<?>> updateUser(@PathVariable String id, @RequestBody User userDetails,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Long expectedVersion;
+        try {
+            Long ifMatchVersion = VersionTag.parseIfMatch(ifMatch);
+            expectedVersion = ifMatchVersion != null ? ifMatchVersion : userDetails.getVersion();
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(e.getMessage()));
+        }
+        return userService.updateUser(id, userDetails, expectedVersion)
+                .<ResponseEntity<?>>map(user -> ResponseEntity.ok().eTag(VersionTag.of(user.getVersion())).body(user))
+                .onErrorResume(OptimisticLockingFailureException.class, e -> Mono.just(ResponseEntity
+                        .status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                        .body(e.getMessage())))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<?>> deleteUser(@PathVariable String id, ServerHttpRequest request, Principal principal) {
+        return userService.deleteById(id)
+                .doOnNext(user -> auditLog.record(AuditEventType.USER_DELETED, user.getId(), user.getEmail(),
+                        principal != null ? principal.getName() : null, ReactiveAuthController.clientIp(request), null))
+                .flatMap(user -> revokeTokens(user, Instant.now()).then(discardAvatar(user)).then(reopenSetup(user)))
+                .<ResponseEntity<?>>thenReturn(ResponseEntity.ok().build())
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    @PostMapping("/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ResponseEntity<?>> revokeUserTokens(@PathVariable String id,
+                                                    @RequestParam(required = false)
+                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant before) {
+        return userService.findById(id)
+                .flatMap(user -> revokeTokens(user, before != null ? before : Instant.now()))
+                .<ResponseEntity<?>>map(families -> ResponseEntity.ok().build())
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    // The avatar store is blocking GridFS
+    private Mono<Void> discardAvatar(User user) {
+        return Mono.<Void>fromRunnable(() -> avatarService.discard(user))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Deleting the last admin reopens first admin setup, see AdminSetupGuard, which is blocking too
+    private Mono<Void> reopenSetup(User user) {
+        if (user.getRoles() == null || !user.getRoles().contains("ADMIN")) {
+            return Mono.empty();
+        }
+        return Mono.<Void>fromRunnable(adminSetupGuard::reopenIfNoAdmin)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Long> revokeTokens(User user, Instant before) {
+        revocationService.revokeAllBefore(user.getEmail(), before);
+        return refreshTokenService.revokeAllForUser(user.getId())
+                .doOnNext(families -> logger.info("Revoked tokens of {} issued before {}, {} refresh families",
+                        user.getEmail(), before, families));
+    }
+}
@@ -0,0 +1,124 @@
+package arious.backend.Auth.reactive;
+
+import arious.backend.Auth.user.RoleCounts;
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserDetail;
+import arious.backend.Auth.user.UserPage;
+import arious.backend.Auth.user.UserService;
+import arious.backend.Auth.user.UserSummary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking port of {@link UserService} for the {@code reactive} profile. Queries are the same
+ * ones the servlet stack runs ({@link UserService#summaryQuery}), only issued through the reactive driver.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService implements ReactiveUserDetailsService {
+
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    private final ReactiveUserRepository userRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final RoleCounts roleCounts;
+
+    public ReactiveUserService(ReactiveUserRepository userRepository, ReactiveMongoTemplate mongoTemplate,
+                               RoleCounts roleCounts) {
+        this.userRepository = userRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.roleCounts = roleCounts;
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return userRepository.findByEmail(username).cast(UserDetails.class);
+    }
+
+    public Mono<User> findByEmail(String email) {
+        return userRepository.findByEmail(email);
+    }
+
+    public Mono<User> findById(String id) {
+        return userRepository.findById(id);
+    }
+
+    public Mono<UserDetail> findDetail(String id) {
+        return mongoTemplate.findOne(UserService.detailQuery(id), UserDetail.class,
+                mongoTemplate.getCollectionName(User.class));
+    }
+
+    // Password has already been hashed by the caller
+    public Mono<User> registerEncodedUser(User user) {
+        if (user.getRoles().isEmpty()) {
+            user.getRoles().add("USER"); // Default role
+        }
+        // Plain insert, the unique email index rejects duplicates
+        return userRepository.insert(user)
+                .doOnNext(inserted -> roleCounts.added(inserted.getRoles()))
+                .onErrorMap(DuplicateKeyException.class, e -> new RuntimeException("Email already exists"));
+    }
+
+    // Same single $set and version guard as UserService.updateUser
+    public Mono<UserDetail> updateUser(String id, User userDetails, Long expectedVersion) {
+        Update update = UserService.editableFields(userDetails);
+        if (update == null) {
+            return findDetail(id)
+                    .switchIfEmpty(Mono.error(() -> new RuntimeException("User not found")));
+        }
+        return mongoTemplate.findAndModify(UserService.patchQuery(id, expectedVersion), update,
+                        FindAndModifyOptions.options().returnNew(true), UserDetail.class,
+                        mongoTemplate.getCollectionName(User.class))
+                .switchIfEmpty(Mono.defer(() -> {
+                    if (expectedVersion == null) {
+                        return Mono.error(new RuntimeException("User not found"));
+                    }
+                    return mongoTemplate.exists(new Query(Criteria.where("_id").is(id)), User.class)
+                            .flatMap(exists -> Mono.error(exists
+                                    ? UserService.versionConflict(id, expectedVersion)
+                                    : new RuntimeException("User not found")));
+                }));
+    }
+
+    // Same conditional swap as UserService.updatePasswordHash
+    public Mono<Boolean> updatePasswordHash(String id, String expectedHash, String newHash) {
+        Query query = new Query(Criteria.where("_id").is(id).and("password").is(expectedHash));
+        return mongoTemplate.updateFirst(query, Update.update("password", newHash), User.class)
+                .map(result -> result.getModifiedCount() > 0);
+    }
+
+    public Mono<User> deleteById(String id) {
+        return mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(id)), User.class)
+                .doOnNext(removed -> roleCounts.removed(removed.getRoles()));
+    }
+
+    public Mono<UserPage<UserSummary>> listUsers(String after, int limit) {
+        Query query = UserService.summaryQuery(after).limit(limit + 1);
+        return mongoTemplate.find(query, UserSummary.class, mongoTemplate.getCollectionName(User.class))
+                .collectList()
+                .map(users -> UserService.toPage(users, limit, UserSummary::getId));
+    }
+
+    public Mono<UserPage<UserSummary>> listUsersByRole(String role, String after, int limit) {
+        Query query = UserService.summaryQuery(after).addCriteria(Criteria.where("roles").is(role)).limit(limit + 1);
+        return mongoTemplate.find(query, UserSummary.class, mongoTemplate.getCollectionName(User.class))
+                .collectList()
+                .map(users -> UserService.toPage(users, limit, UserSummary::getId));
+    }
+
+    // Backpressured cursor, documents are only fetched as fast as the client reads them
+    public Flux<UserSummary> streamUsers() {
+        Query query = UserService.summaryQuery(null).cursorBatchSize(EXPORT_BATCH_SIZE);
+        return mongoTemplate.find(query, UserSummary.class, mongoTemplate.getCollectionName(User.class));
+    }
+}
@@ -0,0 +1,103 @@
+package arious.backend.Auth.user;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Makes {@code /auth/setup-admin} single-winner. Checking "no admin yet" and then inserting one
+ * lets two concurrent callers both pass the check; instead each caller has to claim one guard
+ * document with a unique {@code _id}, and only the insert or findAndModify that wins may go on.
+ *
+ * A claim that never completes (the node died mid-setup) can be taken over once it is older than
+ * {@code admin.setup.claim-timeout-ms}. A completed guard is never taken over by {@link #claim}:
+ * its "no admin" check and a takeover are two separate operations, so a setup could race one that
+ * just finished. Instead every write that removes an admin calls {@link #reopenIfNoAdmin}, which
+ * deletes the completed guard once the last admin is gone and so reopens the setup endpoint.
+ */
+@Component
+public class AdminSetupGuard {
+    private static final Logger logger = LoggerFactory.getLogger(AdminSetupGuard.class);
+
+    static final String COLLECTION = "admin_setup_guard";
+    private static final String GUARD_ID = "first-admin";
+
+    private final MongoTemplate mongoTemplate;
+    private final long claimTimeoutMillis;
+
+    public AdminSetupGuard(MongoTemplate mongoTemplate,
+                           @Value("${admin.setup.claim-timeout-ms:60000}") long claimTimeoutMillis) {
+        this.mongoTemplate = mongoTemplate;
+        this.claimTimeoutMillis = claimTimeoutMillis;
+    }
+
+    /**
+     * @return a claim id the caller must pass to {@link #complete} or {@link #release},
+     * or {@code null} if an admin exists or another setup holds the guard
+     */
+    public String claim(String email) {
+        // Checked against Mongo itself, the materialized role counts may lag behind other nodes
+        if (mongoTemplate.exists(new Query(Criteria.where("roles").is("ADMIN")), User.class)) {
+            return null;
+        }
+        String claimId = UUID.randomUUID().toString();
+        Date now = new Date();
+        try {
+            mongoTemplate.insert(new Document("_id", GUARD_ID)
+                    .append("claimId", claimId)
+                    .append("email", email)
+                    .append("claimedAt", now)
+                    .append("completed", false), COLLECTION);
+            return claimId;
+        } catch (DuplicateKeyException e) {
+            // Only an abandoned claim can be taken over, a completed guard stays until reopenIfNoAdmin
+            Query takeover = new Query(Criteria.where("_id").is(GUARD_ID)
+                    .and("completed").is(false)
+                    .and("claimedAt").lt(new Date(now.getTime() - claimTimeoutMillis)));
+            Update update = new Update().set("claimId", claimId).set("email", email)
+                    .set("claimedAt", now).set("completed", false);
+            return mongoTemplate.findAndModify(takeover, update, Document.class, COLLECTION) != null ? claimId : null;
+        }
+    }
+
+    public void complete(String claimId) {
+        mongoTemplate.updateFirst(claimed(claimId), Update.update("completed", true), COLLECTION);
+    }
+
+    // Gives the claim back after a failed setup so the next attempt does not wait for the timeout
+    public void release(String claimId) {
+        mongoTemplate.remove(claimed(claimId).addCriteria(Criteria.where("completed").is(false)), COLLECTION);
+    }
+
+    /**
+     * Removes the completed guard if no admin exists any more. Call it after deleting a user who
+     * was an admin or taking the role away from one; with an admin left it is one indexed lookup.
+     *
+     * @return true if setup was reopened
+     */
+    public boolean reopenIfNoAdmin() {
+        if (mongoTemplate.exists(new Query(Criteria.where("roles").is("ADMIN")), User.class)) {
+            return false;
+        }
+        Query completed = new Query(Criteria.where("_id").is(GUARD_ID).and("completed").is(true));
+        boolean reopened = mongoTemplate.remove(completed, COLLECTION).getDeletedCount() > 0;
+        if (reopened) {
+            logger.warn("The last admin was removed, first admin setup is open again");
+        }
+        return reopened;
+    }
+
+    private static Query claimed(String claimId) {
+        return new Query(Criteria.where("_id").is(GUARD_ID).and("claimId").is(claimId));
+    }
+}
@@ -1,189 +1,385 @@
 package arious.backend.Auth.user;
 
 import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.Jwt.RefreshTokenFamily;
+import arious.backend.Auth.Jwt.RefreshTokenService;
+import arious.backend.Auth.VirtualThreadConfig;
+import arious.backend.Auth.audit.AuditEventType;
+import arious.backend.Auth.audit.AuditLog;
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.ratelimit.LoginRateLimiter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.security.Principal;
 import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/auth")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
 public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
     private final UserService userService;
     private final JwtUtil jwtUtil;
-    private final PasswordEncoder passwordEncoder;
-
-    public AuthController(UserService userService, JwtUtil jwtUtil, PasswordEncoder passwordEncoder) {
+    private final PasswordHasher passwordHasher;
+    private final RefreshTokenService refreshTokenService;
+    // Runs the blocking work after a hash, see VirtualThreadConfig
+    private final Executor continuationExecutor;
+    private final AuthMetrics metrics;
+    private final LoginRateLimiter rateLimiter;
+    private final AdminSetupGuard adminSetupGuard;
+    private final UserViews userViews;
+    // Non-blocking, events are written to Mongo in the background
+    private final AuditLog auditLog;
+
+    public AuthController(UserService userService, JwtUtil jwtUtil, PasswordHasher passwordHasher,
+                          RefreshTokenService refreshTokenService, VirtualThreadConfig virtualThreadConfig,
+                          AuthMetrics metrics, LoginRateLimiter rateLimiter, AdminSetupGuard adminSetupGuard,
+                          UserViews userViews, AuditLog auditLog) {
         this.userService = userService;
         this.jwtUtil = jwtUtil;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.refreshTokenService = refreshTokenService;
+        this.continuationExecutor = virtualThreadConfig.getContinuationExecutor();
+        this.metrics = metrics;
+        this.rateLimiter = rateLimiter;
+        this.adminSetupGuard = adminSetupGuard;
+        this.userViews = userViews;
+        this.auditLog = auditLog;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable String id) {
-        Optional<User> user = userService.findById(id);
-        return user.map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getUserById(@PathVariable String id, WebRequest request) throws JsonProcessingException {
+        Optional<UserDetail> user = userService.findDetail(id);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return userViews.detail(user.get(), request);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<?> updateUser(@PathVariable String id, @RequestBody User userDetails) {
         try {
-            User updatedUser = userService.updateUser(id, userDetails);
+            UserDetail updatedUser = userService.updateUser(id, userDetails);
             return ResponseEntity.ok(updatedUser);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
+    // Password hashing runs on the PasswordHasher pool, the request thread is released while it waits
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody User user, HttpServletRequest request) {
+        String ip = request.getRemoteAddr();
+        long retryAfter = rateLimiter.checkRegister(ip);
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(tooManyRequests(retryAfter));
+        }
         logger.info("Register request received: email={}, name={}", user.getEmail(), user.getName());
-        try {
-            // Check if user already exists
-            if (userService.findByEmail(user.getEmail()).isPresent()) {
-                return ResponseEntity.badRequest().body("Email already exists");
-            }
+        UserService.asNewUser(user);
 
-            // Ensure roles are initialized
-            if (user.getRoles() == null) {
-                user.setRoles(new HashSet<>());
-            }
+        // Ensure roles are initialized
+        if (user.getRoles() == null) {
+            user.setRoles(new HashSet<>());
+        }
 
-            // Add USER role if no roles are set
-            if (user.getRoles().isEmpty()) {
-                user.getRoles().add("USER");
-            }
+        // Add USER role if no roles are set
+        if (user.getRoles().isEmpty()) {
+            user.getRoles().add("USER");
+        }
 
-            // Register user (UserService handles password encoding)
-            User savedUser = userService.registerUser(user);
+        return passwordHasher.encode(user.getPassword())
+                .<ResponseEntity<?>>thenApplyAsync(encoded -> {
+                    user.setPassword(encoded);
+                    // UserService handles duplicate emails
+                    User savedUser = userService.registerEncodedUser(user);
 
-            String token = jwtUtil.generateToken(savedUser.getEmail());
-            AuthResponse response = new AuthResponse(token, savedUser.getId(),
-                    savedUser.getName(), savedUser.getEmail(), "user", savedUser.getRoles(), "/dashboard");
+                    AuthResponse response = issueTokens(savedUser, "user");
+                    auditLog.record(AuditEventType.REGISTER, savedUser.getId(), savedUser.getEmail(), null, ip, null);
 
-            logger.info("User registered successfully: {}", savedUser.getEmail());
-            return ResponseEntity.ok(response);
-        } catch (RuntimeException e) {
-            logger.error("Registration failed: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+                    logger.info("User registered successfully: {}", savedUser.getEmail());
+                    return ResponseEntity.ok(response);
+                }, continuationExecutor)
+                .exceptionally(e -> {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof PasswordHashingBusyException) {
+                        return busy((PasswordHashingBusyException) cause);
+                    }
+                    logger.error("Registration failed: {}", cause.getMessage(), cause);
+                    return ResponseEntity.badRequest().body(cause.getMessage());
+                });
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        // Throttled before any Mongo read or BCrypt work
+        String ip = request.getRemoteAddr();
+        long retryAfter = rateLimiter.checkLogin(ip, loginRequest.getEmail());
+        if (retryAfter > 0) {
+            metrics.loginThrottled();
+            auditLog.record(AuditEventType.LOGIN_FAILURE, null, loginRequest.getEmail(), null, ip, "throttled");
+            return CompletableFuture.completedFuture(tooManyRequests(retryAfter));
+        }
         logger.info("Login attempt for email: {}", loginRequest.getEmail());
         try {
             Optional<User> userOpt = userService.findByEmail(loginRequest.getEmail());
 
-            if (userOpt.isPresent()) {
-                User user = userOpt.get();
-                logger.debug("User found: {}, roles: {}", user.getEmail(), user.getRoles());
-
-                if (passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
-                    String token = jwtUtil.generateToken(user.getEmail());
-                    String role = user.getRoles().contains("ADMIN") ? "admin" : "user";
-                    String redirectUrl = "/dashboard";
-
-                    logger.info("Login successful for email: {} with role: {}", loginRequest.getEmail(), role);
-                    AuthResponse response = new AuthResponse(token, user.getId(),
-                            user.getName(), user.getEmail(), role, user.getRoles(), redirectUrl);
-                    return ResponseEntity.ok(response);
-                } else {
-                    logger.warn("Invalid password for email: {}", loginRequest.getEmail());
-                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
-                }
-            } else {
+            if (userOpt.isEmpty()) {
                 logger.warn("User not found for email: {}", loginRequest.getEmail());
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
+                metrics.loginFailed();
+                auditLog.record(AuditEventType.LOGIN_FAILURE, null, loginRequest.getEmail(), null, ip, "unknown user");
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials"));
             }
+
+            User user = userOpt.get();
+            logger.debug("User found: {}, roles: {}", user.getEmail(), user.getRoles());
+
+            return passwordHasher.matches(loginRequest.getPassword(), user.getPassword())
+                    .<ResponseEntity<?>>thenApplyAsync(matches -> {
+                        if (!matches) {
+                            logger.warn("Invalid password for email: {}", loginRequest.getEmail());
+                            metrics.loginFailed();
+                            auditLog.record(AuditEventType.LOGIN_FAILURE, user.getId(), user.getEmail(), null, ip,
+                                    "bad password");
+                            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
+                        }
+                        upgradePasswordHash(user, loginRequest.getPassword());
+                        String role = user.getRoles().contains("ADMIN") ? "admin" : "user";
+
+                        logger.info("Login successful for email: {} with role: {}", loginRequest.getEmail(), role);
+                        AuthResponse response = issueTokens(user, role);
+                        metrics.loginSucceeded();
+                        rateLimiter.refundLogin(loginRequest.getEmail());
+                        auditLog.record(AuditEventType.LOGIN_SUCCESS, user.getId(), user.getEmail(), null, ip, null);
+                        return ResponseEntity.ok(response);
+                    }, continuationExecutor)
+                    .exceptionally(e -> {
+                        rateLimiter.refundLogin(loginRequest.getEmail());
+                        return loginFailure(unwrap(e));
+                    });
         } catch (Exception e) {
-            logger.error("Login error: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Login failed: " + e.getMessage());
+            rateLimiter.refundLogin(loginRequest.getEmail());
+            return CompletableFuture.completedFuture(loginFailure(e));
         }
     }
 
-    @PostMapping("/register-admin")
-    @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> registerAdmin(@RequestBody User user) {
-        logger.info("Admin register request: email={}", user.getEmail());
+    // Rehash with the current algorithm and cost off the response path, skipped if the pool is busy
+    private void upgradePasswordHash(User user, String rawPassword) {
+        String currentHash = user.getPassword();
+        if (!passwordHasher.needsUpgrade(currentHash)) {
+            return;
+        }
+        passwordHasher.encode(rawPassword)
+                .thenAcceptAsync(newHash -> {
+                    if (userService.updatePasswordHash(user.getId(), currentHash, newHash)) {
+                        logger.info("Upgraded password hash for email: {}", user.getEmail());
+                    }
+                }, continuationExecutor)
+                .exceptionally(e -> {
+                    logger.debug("Password hash upgrade skipped for {}: {}", user.getEmail(), unwrap(e).getMessage());
+                    return null;
+                });
+    }
+
+    private ResponseEntity<?> loginFailure(Throwable e) {
+        if (e instanceof PasswordHashingBusyException) {
+            metrics.loginRejectedBusy();
+            return busy((PasswordHashingBusyException) e);
+        }
+        metrics.loginFailed();
+        logger.error("Login error: {}", e.getMessage(), e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Login failed: " + e.getMessage());
+    }
 
+    // One findAndModify swaps the refresh token, then the access token is minted from the user as it is now,
+    // not from the family's login-time snapshot, so a role change takes effect at the next refresh
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest refreshRequest) {
         try {
-            // Check if user already exists
-            if (userService.findByEmail(user.getEmail()).isPresent()) {
-                return ResponseEntity.badRequest().body("Email already exists");
+            RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+            if (rotation == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
             }
 
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+            RefreshTokenFamily family = rotation.getFamily();
+            Optional<UserDetail> current = userService.findDetail(family.getUserId());
+            if (current.isEmpty()) {
+                // Deleted since the login, nothing of theirs may be refreshed again
+                refreshTokenService.revokeAllForUser(family.getUserId());
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+            }
+
+            UserDetail user = current.get();
+            Set<String> roles = user.getRoles() != null ? user.getRoles() : Set.of();
+            String token = jwtUtil.generateToken(user.getEmail(), roles);
+            String role = roles.contains("ADMIN") ? "admin" : "user";
+
+            logger.debug("Refreshed tokens for email: {}", user.getEmail());
+            return ResponseEntity.ok(new AuthResponse(token, rotation.getRefreshToken(), jwtUtil.getExpiration(),
+                    user.getId(), user.getName(), user.getEmail(), role, roles, "/dashboard"));
+        } catch (Exception e) {
+            logger.error("Refresh error: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Refresh failed: " + e.getMessage());
+        }
+    }
 
-            // Ensure roles are initialized
-            if (user.getRoles() == null) {
-                user.setRoles(new HashSet<>());
+    // Revokes the presented access token and, if given, the refresh token family
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader,
+                                    @RequestBody(required = false) RefreshRequest refreshRequest) {
+        try {
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                jwtUtil.revoke(authHeader.substring(7));
+            }
+            if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+                refreshTokenService.revoke(refreshRequest.getRefreshToken());
             }
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            logger.error("Logout error: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Logout failed: " + e.getMessage());
+        }
+    }
 
-            user.getRoles().add("ADMIN");
-            user.getRoles().add("USER"); // Admin should also have USER role
+    @PostMapping("/register-admin")
+    @PreAuthorize("hasRole('ADMIN')")
+    public CompletableFuture<ResponseEntity<?>> registerAdmin(@RequestBody User user, HttpServletRequest request,
+                                                             Principal principal) {
+        logger.info("Admin register request: email={}", user.getEmail());
+        UserService.asNewUser(user);
+        String ip = request.getRemoteAddr();
+        String actor = principal != null ? principal.getName() : null;
 
-            User savedUser = userService.save(user);
+        return passwordHasher.encode(user.getPassword())
+                .<ResponseEntity<?>>thenApplyAsync(encoded -> {
+                    user.setPassword(encoded);
 
-            String token = jwtUtil.generateToken(savedUser.getEmail());
-            AuthResponse response = new AuthResponse(token, savedUser.getId(),
-                    savedUser.getName(), savedUser.getEmail(), "admin", savedUser.getRoles(), "/dashboard");
+                    // Ensure roles are initialized
+                    if (user.getRoles() == null) {
+                        user.setRoles(new HashSet<>());
+                    }
 
-            logger.info("Admin registered successfully: {}", savedUser.getEmail());
-            return ResponseEntity.ok(response);
-        } catch (RuntimeException e) {
-            logger.error("Admin registration failed: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+                    user.getRoles().add("ADMIN");
+                    user.getRoles().add("USER"); // Admin should also have USER role
+
+                    User savedUser = userService.save(user);
+
+                    AuthResponse response = issueTokens(savedUser, "admin");
+                    auditLog.record(AuditEventType.ADMIN_CREATED, savedUser.getId(), savedUser.getEmail(), actor, ip, null);
+
+                    logger.info("Admin registered successfully: {}", savedUser.getEmail());
+                    return ResponseEntity.ok(response);
+                }, continuationExecutor)
+                .exceptionally(e -> adminFailure(unwrap(e), "Admin registration failed"));
     }
 
     @PostMapping("/setup-admin")
-    public ResponseEntity<?> setupFirstAdmin(@RequestBody User user) {
+    public CompletableFuture<ResponseEntity<?>> setupFirstAdmin(@RequestBody User user, HttpServletRequest request) {
         logger.info("First admin setup request: email={}", user.getEmail());
+        UserService.asNewUser(user);
+        String ip = request.getRemoteAddr();
 
+        String claimId;
         try {
-            // Check if any admin exists already
-            boolean adminExists = userService.adminExists();
-            logger.info("Admin exists check: {}", adminExists);
-
-            if (adminExists) {
+            // Cheap answer from the role counts for the common "already set up" case
+            if (userService.adminExists()) {
                 logger.warn("Admin already exists, returning 403");
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                        .body("Admin already exists. Use register-admin endpoint.");
+                return CompletableFuture.completedFuture(adminAlreadyExists());
+            }
+            // Only one concurrent caller gets past this, the check above alone would let several through
+            claimId = adminSetupGuard.claim(user.getEmail());
+            if (claimId == null) {
+                logger.warn("First admin setup already claimed, returning 403");
+                return CompletableFuture.completedFuture(adminAlreadyExists());
             }
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(adminFailure(e, "First admin setup failed"));
+        }
 
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
+        return passwordHasher.encode(user.getPassword())
+                .<ResponseEntity<?>>thenApplyAsync(encoded -> {
+                    user.setPassword(encoded);
 
-            // Ensure roles are initialized
-            if (user.getRoles() == null) {
-                user.setRoles(new HashSet<>());
-            }
+                    // Ensure roles are initialized
+                    if (user.getRoles() == null) {
+                        user.setRoles(new HashSet<>());
+                    }
 
-            user.getRoles().add("ADMIN");
-            user.getRoles().add("USER"); // Admin should also have USER role
+                    user.getRoles().add("ADMIN");
+                    user.getRoles().add("USER"); // Admin should also have USER role
 
-            logger.info("Saving admin with roles: {}", user.getRoles());
-            User savedUser = userService.save(user);
-            logger.info("Admin saved with roles: {}", savedUser.getRoles());
+                    logger.info("Saving admin with roles: {}", user.getRoles());
+                    User savedUser = userService.save(user);
+                    adminSetupGuard.complete(claimId);
+                    logger.info("Admin saved with roles: {}", savedUser.getRoles());
 
-            String token = jwtUtil.generateToken(savedUser.getEmail());
-            AuthResponse response = new AuthResponse(token, savedUser.getId(),
-                    savedUser.getName(), savedUser.getEmail(), "admin", savedUser.getRoles(), "/dashboard");
+                    AuthResponse response = issueTokens(savedUser, "admin");
+                    auditLog.record(AuditEventType.ADMIN_CREATED, savedUser.getId(), savedUser.getEmail(), null, ip,
+                            "first admin");
 
-            logger.info("First admin set up successfully: {}", savedUser.getEmail());
-            return ResponseEntity.ok(response);
-        } catch (RuntimeException e) {
-            logger.error("First admin setup failed: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body(e.getMessage());
+                    logger.info("First admin set up successfully: {}", savedUser.getEmail());
+                    return ResponseEntity.ok(response);
+                }, continuationExecutor)
+                .exceptionally(e -> {
+                    adminSetupGuard.release(claimId);
+                    return adminFailure(unwrap(e), "First admin setup failed");
+                });
+    }
+
+    private static ResponseEntity<?> adminAlreadyExists() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Admin already exists. Use register-admin endpoint.");
+    }
+
+    // Short-lived access token plus the first refresh token of a new family
+    private AuthResponse issueTokens(User user, String access) {
+        String token = jwtUtil.generateToken(user);
+        RefreshTokenService.Rotation refresh = refreshTokenService.issue(user);
+        return new AuthResponse(token, refresh.getRefreshToken(), jwtUtil.getExpiration(), user.getId(),
+                user.getName(), user.getEmail(), access, user.getRoles(), "/dashboard");
+    }
+
+    private ResponseEntity<?> adminFailure(Throwable e, String message) {
+        if (e instanceof PasswordHashingBusyException) {
+            return busy((PasswordHashingBusyException) e);
+        }
+        if (e instanceof DuplicateKeyException) {
+            return ResponseEntity.badRequest().body("Email already exists");
         }
+        logger.error("{}: {}", message, e.getMessage(), e);
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private static ResponseEntity<?> busy(PasswordHashingBusyException e) {
+        logger.warn("Password hashing pool saturated, rejecting request");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    private static ResponseEntity<?> tooManyRequests(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Too many attempts, try again later");
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,11 @@ package arious.backend.Auth.user;
 
 import java.util.Set;
 
-class AuthResponse {
+public class AuthResponse {
     private String token;
+    private String refreshToken;
+    // Lifetime of the access token in milliseconds
+    private Long expiresIn;
     private String userId;
     private String name;
     private String email;
@@ -21,8 +24,17 @@ class AuthResponse {
         this.redirectUrl = redirectUrl;
     }
 
+    public AuthResponse(String token, String refreshToken, long expiresIn, String userId, String name, String email,
+                        String access, Set<String> roles, String redirectUrl) {
+        this(token, userId, name, email, access, roles, redirectUrl);
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
+
     // Getters
     public String getToken() { return token; }
+    public String getRefreshToken() { return refreshToken; }
+    public Long getExpiresIn() { return expiresIn; }
     public String getUserId() { return userId; }
     public String getName() { return name; }
     public String getEmail() { return email; }
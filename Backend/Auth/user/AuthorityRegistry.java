@@ -0,0 +1,91 @@
+package arious.backend.Auth.user;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns the GrantedAuthority set for each distinct role set.
+ * There are only a handful of role combinations in practice, so every user and
+ * token principal with the same roles shares one precomputed, immutable collection.
+ */
+public final class AuthorityRegistry {
+
+    // Guards against unbounded growth if role sets ever become user-specific
+    private static final int MAX_ENTRIES = 1024;
+    private static final ConcurrentHashMap<Set<String>, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private AuthorityRegistry() {
+    }
+
+    public static Entry forRoles(Set<String> roles) {
+        if (roles == null) {
+            roles = Collections.emptySet();
+        }
+        Entry entry = ENTRIES.get(roles);
+        if (entry != null) {
+            return entry;
+        }
+        Set<String> key = immutableCopy(roles);
+        Entry created = new Entry(key, toAuthorities(key));
+        if (ENTRIES.size() >= MAX_ENTRIES) {
+            return created;
+        }
+        Entry existing = ENTRIES.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    private static Set<String> immutableCopy(Set<String> roles) {
+        Set<String> copy = new LinkedHashSet<>();
+        for (String role : roles) {
+            if (role != null) {
+                copy.add(role);
+            }
+        }
+        return Collections.unmodifiableSet(copy);
+    }
+
+    private static Set<GrantedAuthority> toAuthorities(Set<String> roles) {
+        // Convert each role to a SimpleGrantedAuthority with "ROLE_" prefix
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
+        for (String role : roles) {
+            authorities.add(new SimpleGrantedAuthority(role.startsWith("ROLE_") ? role : "ROLE_" + role));
+        }
+        return Collections.unmodifiableSet(authorities);
+    }
+
+    public static final class Entry {
+        // The key's roles, walked by index so a check never creates an iterator
+        private final String[] roles;
+        private final Set<GrantedAuthority> authorities;
+
+        private Entry(Set<String> roles, Set<GrantedAuthority> authorities) {
+            this.roles = roles.toArray(new String[0]);
+            this.authorities = authorities;
+        }
+
+        /**
+         * Role sets are mutable on User, so a cached entry has to be re-checked before reuse.
+         * The entry holds no duplicates or nulls, so same size and every role contained means equal.
+         */
+        public boolean matches(Set<String> currentRoles) {
+            if (currentRoles == null || currentRoles.size() != roles.length) {
+                return false;
+            }
+            for (String role : roles) {
+                if (!currentRoles.contains(role)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public Set<GrantedAuthority> getAuthorities() {
+            return authorities;
+        }
+    }
+}
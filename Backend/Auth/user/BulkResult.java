@@ -0,0 +1,42 @@
+package arious.backend.Auth.user;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one line of a bulk request, streamed back as one NDJSON line.
+ * {@code index} is the zero-based line number in the request body.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkResult {
+
+    public enum Status { CREATED, UPDATED, DELETED, NOT_FOUND, FAILED, SKIPPED }
+
+    private final long index;
+    private final String id;
+    private final Status status;
+    private final String error;
+
+    public BulkResult(long index, String id, Status status, String error) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BulkResult ok(long index, String id, Status status) {
+        return new BulkResult(index, id, status, null);
+    }
+
+    public static BulkResult failed(long index, String id, String error) {
+        return new BulkResult(index, id, Status.FAILED, error);
+    }
+
+    public long getIndex() { return index; }
+    public String getId() { return id; }
+    public Status getStatus() { return status; }
+    public String getError() { return error; }
+
+    public boolean isFailure() {
+        return status == Status.FAILED || status == Status.NOT_FOUND;
+    }
+}
@@ -0,0 +1,33 @@
+package arious.backend.Auth.user;
+
+import java.util.Set;
+
+/**
+ * One line of a bulk update: the user's id plus the fields to change.
+ * Fields left {@code null} are not touched, like {@code PUT /users/{id}}.
+ */
+public class BulkUserUpdate {
+    private String id;
+    private String name;
+    private String surname;
+    private String phoneNumber;
+    private String address;
+    private String bio;
+    // Only read by the roles endpoint, replaces the whole set
+    private Set<String> roles;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    public String getSurname() { return surname; }
+    public void setSurname(String surname) { this.surname = surname; }
+    public String getPhoneNumber() { return phoneNumber; }
+    public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
+    public String getAddress() { return address; }
+    public void setAddress(String address) { this.address = address; }
+    public String getBio() { return bio; }
+    public void setBio(String bio) { this.bio = bio; }
+    public Set<String> getRoles() { return roles; }
+    public void setRoles(Set<String> roles) { this.roles = roles; }
+}
@@ -3,9 +3,12 @@ package arious.backend.Auth.user;
 
 
 import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.Jwt.VerifiedToken;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,6 +19,7 @@ import java.util.Map;
 import java.util.Optional;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/debug/auth")
 public class DebugAuthController {
 
@@ -42,6 +46,9 @@ public class DebugAuthController {
                 if (user.isPresent()) {
                     response.put("user", user.get());
                 }
+            } else if (authentication.getPrincipal() instanceof UserDetails) {
+                userService.hydrate((UserDetails) authentication.getPrincipal())
+                        .ifPresent(user -> response.put("user", user));
             }
         } else {
             response.put("authentication", "null");
@@ -55,13 +62,14 @@ public class DebugAuthController {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            boolean isValid = jwtUtil.validateToken(token);
-            response.put("valid", isValid);
-
-            if (isValid) {
-                String email = jwtUtil.getEmailFromToken(token);
-                response.put("email", email);
-                response.put("roles", jwtUtil.extractRoles(token));
+            VerifiedToken verified = jwtUtil.verify(token);
+            response.put("valid", verified != null);
+
+            if (verified != null) {
+                response.put("email", verified.getSubject());
+                response.put("roles", verified.getRoles());
+                response.put("issuedAt", verified.getIssuedAt());
+                response.put("expiresAt", verified.getExpiresAt());
             }
         } catch (Exception e) {
             response.put("error", e.getMessage());
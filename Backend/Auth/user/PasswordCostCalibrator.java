@@ -0,0 +1,58 @@
+package arious.backend.Auth.user;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * Measures BCrypt on the hardware we are actually running on and picks the
+ * strength whose cost per hash is closest to a target, so the work factor can be
+ * tuned in milliseconds instead of guessed.
+ */
+public final class PasswordCostCalibrator {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordCostCalibrator.class);
+
+    static final int MIN_STRENGTH = 4;
+    static final int MAX_STRENGTH = 16;
+    private static final String SAMPLE_PASSWORD = "calibration-Password-1";
+
+    private PasswordCostCalibrator() {
+    }
+
+    /**
+     * @return the BCrypt strength closest to {@code targetMillis} per hash, never below {@code minStrength}
+     */
+    public static int calibrateBCrypt(long targetMillis, int minStrength, int samples) {
+        int best = Math.max(MIN_STRENGTH, minStrength);
+        double bestDistance = Double.MAX_VALUE;
+
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            double millis = measureBCrypt(strength, samples);
+            logger.info("BCrypt strength {}: {} ms/hash", strength, String.format("%.1f", millis));
+
+            double distance = Math.abs(millis - targetMillis);
+            if (strength >= minStrength && distance < bestDistance) {
+                best = strength;
+                bestDistance = distance;
+            }
+            // Each step doubles the cost, nothing further up can be closer
+            if (millis > targetMillis && strength >= minStrength) {
+                break;
+            }
+        }
+        logger.info("Calibrated BCrypt strength {} for a target of {} ms/hash", best, targetMillis);
+        return best;
+    }
+
+    public static double measureBCrypt(int strength, int samples) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        // Warm up once so class loading and JIT do not count against the first strength
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+        int n = Math.max(1, samples);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            encoder.matches(SAMPLE_PASSWORD, hash);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / n;
+    }
+}
@@ -0,0 +1,70 @@
+package arious.backend.Auth.user;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Delegating encoder that verifies every hash format we have ever stored and
+ * encodes new ones with the configured algorithm and cost.
+ *
+ * Hashes written before this existed are plain BCrypt without an {id} prefix and are
+ * still accepted. {@code upgradeEncoding} reports them, and anything with a lower cost,
+ * so AuthController can rehash them after a successful login.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordEncoderConfig.class);
+
+    @Value("${password.encoder:bcrypt}")
+    private String encoderId;
+
+    @Value("${password.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    // 0 disables calibration and keeps password.bcrypt.strength
+    @Value("${password.calibration.target-ms:0}")
+    private long calibrationTargetMillis;
+
+    @Value("${password.calibration.samples:5}")
+    private int calibrationSamples;
+
+    @Bean
+    @Primary
+    public PasswordEncoder upgradingPasswordEncoder() {
+        int strength = bcryptStrength;
+        if ("bcrypt".equals(encoderId) && calibrationTargetMillis > 0) {
+            // Never calibrate below the configured floor
+            strength = PasswordCostCalibrator.calibrateBCrypt(calibrationTargetMillis, bcryptStrength, calibrationSamples);
+        }
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if ("argon2".equals(encoderId)) {
+            // Needs Bouncy Castle on the classpath, only wired when selected
+            encoders.put("argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        }
+        if (!encoders.containsKey(encoderId)) {
+            throw new IllegalStateException("Unsupported password.encoder: " + encoderId);
+        }
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encoderId, encoders);
+        // Legacy hashes have no {id} prefix, they were all produced by BCrypt
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+        logger.info("Password encoder: {} (bcrypt strength {})", encoderId, strength);
+        return delegating;
+    }
+}
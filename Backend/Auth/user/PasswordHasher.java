@@ -0,0 +1,140 @@
+package arious.backend.Auth.user;
+
+import arious.backend.Auth.metrics.AuthMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the deliberately slow PasswordEncoder work on its own fixed-size pool with a bounded queue,
+ * so a burst of logins cannot take every Tomcat request thread with it.
+ * When the queue is full the returned future fails with {@link PasswordHashingBusyException}
+ * straight away, and the controllers turn that into 503 with Retry-After.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final int retryAfterSeconds;
+    private final AuthMetrics metrics;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+
+    public PasswordHasher(@Lazy PasswordEncoder passwordEncoder,
+                          @Value("${password.hashing.threads:0}") int threads,
+                          @Value("${password.hashing.queue-capacity:64}") int queueCapacity,
+                          @Value("${password.hashing.retry-after-seconds:1}") int retryAfterSeconds,
+                          AuthMetrics metrics) {
+        this.passwordEncoder = passwordEncoder;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                new HasherThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.metrics = metrics;
+    }
+
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword), metrics::recordPasswordMatches);
+    }
+
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword), metrics::recordPasswordEncode);
+    }
+
+    /**
+     * Hashes a whole batch on the shared pool while never holding more than half of its threads,
+     * so a bulk import slows down under login load instead of starving it. Blocks until every
+     * future is done; a failure, such as a full queue, stays with its own item.
+     */
+    public List<CompletableFuture<String>> encodeAll(List<? extends CharSequence> rawPasswords) {
+        Semaphore inFlight = new Semaphore(Math.max(1, executor.getMaximumPoolSize() / 2));
+        List<CompletableFuture<String>> results = new ArrayList<>(rawPasswords.size());
+        for (CharSequence rawPassword : rawPasswords) {
+            if (rawPassword == null || rawPassword.length() == 0) {
+                results.add(CompletableFuture.failedFuture(new IllegalArgumentException("Password is required")));
+                continue;
+            }
+            inFlight.acquireUninterruptibly();
+            CompletableFuture<String> encoded = encode(rawPassword);
+            encoded.whenComplete((hash, e) -> inFlight.release());
+            results.add(encoded);
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                .exceptionally(e -> null)
+                .join();
+        return results;
+    }
+
+    // True when the stored hash uses an older algorithm or a lower cost than we encode with today
+    public boolean needsUpgrade(String encodedPassword) {
+        return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work, LongConsumer timer) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.get();
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    totalHashNanos.add(elapsed);
+                    timer.accept(elapsed);
+                    completed.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new PasswordHashingBusyException(retryAfterSeconds));
+        }
+    }
+
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public int getActiveCount() { return executor.getActiveCount(); }
+    public int getPoolSize() { return executor.getMaximumPoolSize(); }
+    public long getCompletedCount() { return completed.sum(); }
+    public long getRejectedCount() { return rejected.sum(); }
+    public long getTotalHashNanos() { return totalHashNanos.sum(); }
+
+    public double getAverageHashMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0.0 : totalHashNanos.sum() / 1_000_000.0 / count;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private static final class HasherThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "password-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package arious.backend.Auth.user;
+
+/**
+ * Thrown when the password hashing pool is saturated and cannot take more work.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    private final int retryAfterSeconds;
+
+    public PasswordHashingBusyException(int retryAfterSeconds) {
+        super("Password hashing capacity exhausted, retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,113 @@
+package arious.backend.Auth.user;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Materialized number of users per role, so role statistics and the admin check do not have to
+ * count documents on every call.
+ *
+ * The user services apply a delta on every write that changes role membership. Writes made by
+ * other nodes, or racing with a reconcile, make the counts drift; {@link #reconcile} recounts
+ * from Mongo on a schedule (and right after startup) and replaces them wholesale. Until the first
+ * reconcile the counts are not {@link #isLoaded() loaded} and callers must not trust a zero.
+ */
+@Component
+public class RoleCounts {
+    private static final Logger logger = LoggerFactory.getLogger(RoleCounts.class);
+
+    private final MongoTemplate mongoTemplate;
+    private volatile ConcurrentHashMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public RoleCounts(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public void added(Collection<String> roles) {
+        apply(roles, 1);
+    }
+
+    public void removed(Collection<String> roles) {
+        apply(roles, -1);
+    }
+
+    public void changed(Collection<String> before, Collection<String> after) {
+        if (before != null) {
+            for (String role : before) {
+                if (after == null || !after.contains(role)) {
+                    delta(role, -1);
+                }
+            }
+        }
+        if (after != null) {
+            for (String role : after) {
+                if (before == null || !before.contains(role)) {
+                    delta(role, 1);
+                }
+            }
+        }
+    }
+
+    private void apply(Collection<String> roles, long delta) {
+        if (roles == null) {
+            return;
+        }
+        for (String role : roles) {
+            delta(role, delta);
+        }
+    }
+
+    private void delta(String role, long delta) {
+        if (role != null) {
+            counts.computeIfAbsent(role, r -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    public long count(String role) {
+        AtomicLong count = counts.get(role);
+        return count != null ? Math.max(0, count.get()) : 0;
+    }
+
+    // Sorted by role, for the admin endpoint
+    public Map<String, Long> snapshot() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counts.forEach((role, count) -> snapshot.put(role, Math.max(0, count.get())));
+        return snapshot;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // One aggregation over just the roles field, unwound and counted per value
+    @Scheduled(fixedDelayString = "${users.role-counts.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.project("roles"),
+                Aggregation.unwind("roles"),
+                Aggregation.group("roles").count().as("count"));
+        ConcurrentHashMap<String, AtomicLong> fresh = new ConcurrentHashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, User.class, Document.class)) {
+            Object role = row.get("_id");
+            Number count = row.get("count", Number.class);
+            if (role != null && count != null) {
+                fresh.put(role.toString(), new AtomicLong(count.longValue()));
+            }
+        }
+        counts = fresh;
+        loaded = true;
+        logger.debug("Reconciled role counts: {}", fresh);
+    }
+}
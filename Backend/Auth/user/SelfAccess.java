@@ -0,0 +1,29 @@
+package arious.backend.Auth.user;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code @PreAuthorize("hasRole('ADMIN') or @selfAccess.isSelf(#id, authentication)")}: whether the
+ * path id is the caller's own user id. The principal is either the User document itself or, in
+ * stateless principal mode, a claims-only JwtPrincipal whose id is resolved through the user cache.
+ */
+@Component("selfAccess")
+public class SelfAccess {
+
+    private final UserService userService;
+
+    public SelfAccess(UserService userService) {
+        this.userService = userService;
+    }
+
+    public boolean isSelf(String id, Authentication authentication) {
+        if (id == null || authentication == null || !(authentication.getPrincipal() instanceof UserDetails)) {
+            return false;
+        }
+        return userService.hydrate((UserDetails) authentication.getPrincipal())
+                .map(user -> id.equals(user.getId()))
+                .orElse(false);
+    }
+}
@@ -1,11 +1,18 @@
 package arious.backend.Auth.user;
 
+import arious.backend.Auth.avatar.AvatarRef;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.time.LocalDate;
@@ -13,7 +20,6 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Document(collection = "users")
 @Data
@@ -34,12 +40,25 @@ public class User implements UserDetails {
     private String address;
     private String nationality;
     private String gender;
-    private String profilePicture;
+    // Reference into the AvatarStore, the image itself never lives in this document
+    private AvatarRef avatar;
     private String bio;
 
     private Set<String> roles = new HashSet<>();
     private LocalDateTime createdDate = LocalDateTime.now();
 
+    // Bumped by every field update, see UserService#updateUser. Absent on older documents, read as 0
+    private Long version;
+
+    // Shared authority set for the current roles, never persisted or serialized
+    @Transient
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private AuthorityRegistry.Entry authorityCache;
+
     public User() {
         if (this.roles == null) {
             this.roles = new HashSet<>();
@@ -49,12 +68,20 @@ public class User implements UserDetails {
         }
     }
 
+    public void setRoles(Set<String> roles) {
+        this.roles = roles;
+        this.authorityCache = null;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // Convert each role to a SimpleGrantedAuthority with "ROLE_" prefix
-        return roles.stream()
-                .map(role -> new SimpleGrantedAuthority(role.startsWith("ROLE_") ? role : "ROLE_" + role))
-                .collect(Collectors.toSet());
+        AuthorityRegistry.Entry entry = authorityCache;
+        // getRoles() hands out the live set, so check it has not been changed in place
+        if (entry == null || !entry.matches(roles)) {
+            entry = AuthorityRegistry.forRoles(roles);
+            authorityCache = entry;
+        }
+        return entry.getAuthorities();
     }
 
     @Override
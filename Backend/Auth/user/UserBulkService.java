@@ -0,0 +1,414 @@
+package arious.backend.Auth.user;
+
+import arious.backend.Auth.Jwt.RefreshTokenService;
+import arious.backend.Auth.Jwt.TokenRevocationService;
+import arious.backend.Auth.audit.AuditEventType;
+import arious.backend.Auth.audit.AuditLog;
+import arious.backend.Auth.avatar.AvatarService;
+import arious.backend.Auth.metrics.AuthMetrics;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import io.micrometer.core.instrument.Timer;
+import org.bson.types.ObjectId;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bulk create, update and delete of users, one chunk at a time.
+ *
+ * Every chunk is a single {@link BulkOperations} round-trip, plus one {@code $in} lookup where
+ * per-item "not found" has to be reported. Passwords of a create chunk are hashed in parallel on
+ * the {@link PasswordHasher} pool. In ordered mode the first failing item stops the chunk and the
+ * items after it are reported as skipped; unordered mode writes everything it can.
+ *
+ * Creating an admin, changing roles and deleting are audited here rather than by the controller,
+ * since only the service knows the emails and previous roles of the users it touched.
+ * {@code actor} and {@code ip} are those of the request, read before the body is streamed.
+ */
+@Service
+@Profile("!reactive")
+public class UserBulkService {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final PasswordHasher passwordHasher;
+    private final UserCache userCache;
+    private final TokenRevocationService revocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final RoleCounts roleCounts;
+    private final AvatarService avatarService;
+    private final AuditLog auditLog;
+    private final AdminSetupGuard adminSetupGuard;
+    private final Timer mongoBulkWrite;
+    private final Timer mongoBulkLookup;
+
+    public UserBulkService(MongoTemplate mongoTemplate, PasswordHasher passwordHasher, UserCache userCache,
+                           TokenRevocationService revocationService, RefreshTokenService refreshTokenService,
+                           RoleCounts roleCounts, AvatarService avatarService, AuditLog auditLog,
+                           AdminSetupGuard adminSetupGuard, AuthMetrics metrics) {
+        this.mongoTemplate = mongoTemplate;
+        this.passwordHasher = passwordHasher;
+        this.userCache = userCache;
+        this.revocationService = revocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.roleCounts = roleCounts;
+        this.avatarService = avatarService;
+        this.auditLog = auditLog;
+        this.adminSetupGuard = adminSetupGuard;
+        this.mongoBulkWrite = metrics.mongoTimer("bulkWrite");
+        this.mongoBulkLookup = metrics.mongoTimer("bulkLookup");
+    }
+
+    public List<BulkResult> create(List<User> users, long firstIndex, boolean ordered, String actor, String ip) {
+        List<String> passwords = new ArrayList<>(users.size());
+        for (User user : users) {
+            passwords.add(user.getPassword());
+        }
+        List<CompletableFuture<String>> hashes = passwordHasher.encodeAll(passwords);
+
+        BulkResult[] results = new BulkResult[users.size()];
+        BulkOperations ops = mongoTemplate.bulkOps(mode(ordered), User.class);
+        List<Integer> positions = new ArrayList<>();
+        boolean stopped = false;
+        for (int i = 0; i < users.size(); i++) {
+            long index = firstIndex + i;
+            if (stopped) {
+                results[i] = BulkResult.ok(index, null, BulkResult.Status.SKIPPED);
+                continue;
+            }
+            User user = users.get(i);
+            if (user.getEmail() == null || user.getEmail().isBlank()) {
+                results[i] = BulkResult.failed(index, null, "Email is required");
+                stopped = ordered;
+                continue;
+            }
+            String hash;
+            try {
+                hash = hashes.get(i).join();
+            } catch (CompletionException e) {
+                results[i] = BulkResult.failed(index, null, e.getCause().getMessage());
+                stopped = ordered;
+                continue;
+            }
+            // Ids are assigned here so the result can report them, the driver would not hand them back
+            UserService.asNewUser(user).setId(new ObjectId().toHexString());
+            user.setPassword(hash);
+            if (user.getRoles() == null) {
+                user.setRoles(new HashSet<>());
+            }
+            if (user.getRoles().isEmpty()) {
+                user.getRoles().add("USER");
+            }
+            ops.insert(user);
+            positions.add(i);
+        }
+        write(ops, positions, results, firstIndex, ordered, i -> users.get(i).getId(), BulkResult.Status.CREATED,
+                BulkWriteResult::getInsertedCount);
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].getStatus() == BulkResult.Status.CREATED) {
+                User created = users.get(i);
+                roleCounts.added(created.getRoles());
+                if (created.getRoles().contains("ADMIN")) {
+                    auditLog.record(AuditEventType.ADMIN_CREATED, created.getId(), created.getEmail(), actor, ip, "bulk");
+                }
+            }
+        }
+        return List.of(results);
+    }
+
+    // Same fields as PUT /users/{id}, and like it bumps the version so guarded edits see the change
+    public List<BulkResult> update(List<BulkUserUpdate> updates, long firstIndex, boolean ordered) {
+        return applyUpdates(updates, firstIndex, ordered, false, null, null, item -> {
+            Update update = new Update();
+            if (item.getName() != null) update.set("name", item.getName());
+            if (item.getSurname() != null) update.set("surname", item.getSurname());
+            if (item.getPhoneNumber() != null) update.set("phoneNumber", item.getPhoneNumber());
+            if (item.getAddress() != null) update.set("address", item.getAddress());
+            if (item.getBio() != null) update.set("bio", item.getBio());
+            if (update.getUpdateObject().isEmpty()) {
+                throw new IllegalArgumentException("Nothing to update");
+            }
+            return update.inc("version", 1);
+        });
+    }
+
+    public List<BulkResult> updateRoles(List<BulkUserUpdate> updates, long firstIndex, boolean ordered,
+                                        String actor, String ip) {
+        return applyUpdates(updates, firstIndex, ordered, true, actor, ip, item -> {
+            if (item.getRoles() == null || item.getRoles().isEmpty()) {
+                throw new IllegalArgumentException("Roles are required");
+            }
+            return Update.update("roles", item.getRoles()).inc("version", 1);
+        });
+    }
+
+    private List<BulkResult> applyUpdates(List<BulkUserUpdate> updates, long firstIndex, boolean ordered,
+                                          boolean rolesChange, String actor, String ip,
+                                          Function<BulkUserUpdate, Update> toUpdate) {
+        Map<String, User> existing = lookup(updates);
+        BulkResult[] results = new BulkResult[updates.size()];
+        BulkOperations ops = mongoTemplate.bulkOps(mode(ordered), User.class);
+        List<Integer> positions = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        boolean stopped = false;
+        for (int i = 0; i < updates.size(); i++) {
+            long index = firstIndex + i;
+            BulkUserUpdate item = updates.get(i);
+            BulkResult rejected = precheck(item, index, existing, seen, stopped);
+            if (rejected != null) {
+                results[i] = rejected;
+                stopped |= ordered && rejected.isFailure();
+                continue;
+            }
+            try {
+                ops.updateOne(new Query(Criteria.where("_id").is(item.getId())), toUpdate.apply(item));
+            } catch (IllegalArgumentException e) {
+                results[i] = BulkResult.failed(index, item.getId(), e.getMessage());
+                stopped = ordered;
+                continue;
+            }
+            positions.add(i);
+        }
+        boolean confirmed = write(ops, positions, results, firstIndex, ordered, i -> updates.get(i).getId(),
+                BulkResult.Status.UPDATED, BulkWriteResult::getMatchedCount);
+        if (!confirmed) {
+            notFoundIfGone(results, firstIndex);
+        }
+        invalidate(results);
+        if (rolesChange) {
+            // Tokens carry the roles, so like a delete every token issued before the change stops working
+            Instant now = Instant.now();
+            List<String> updatedIds = new ArrayList<>();
+            boolean adminRemoved = false;
+            for (int i = 0; i < results.length; i++) {
+                if (results[i].getStatus() == BulkResult.Status.UPDATED) {
+                    User before = existing.get(results[i].getId());
+                    Set<String> roles = updates.get(i).getRoles();
+                    updatedIds.add(before.getId());
+                    roleCounts.changed(before.getRoles(), roles);
+                    auditRolesChange(before, roles, actor, ip);
+                    adminRemoved |= isAdmin(before) && !roles.contains("ADMIN");
+                    if (before.getEmail() != null) {
+                        revocationService.revokeAllBefore(before.getEmail(), now);
+                    }
+                }
+            }
+            refreshTokenService.revokeAllForUsers(updatedIds);
+            if (!confirmed) {
+                // A user deleted mid-chunk may have been counted by the deleter with either set of roles
+                roleCounts.reconcile();
+            }
+            if (adminRemoved) {
+                adminSetupGuard.reopenIfNoAdmin();
+            }
+        }
+        return List.of(results);
+    }
+
+    // Deletes and, like DELETE /users/{id}, revokes every token the removed users still hold and drops their avatars
+    public List<BulkResult> delete(List<BulkUserUpdate> items, long firstIndex, boolean ordered,
+                                   String actor, String ip) {
+        Map<String, User> existing = lookup(items);
+        BulkResult[] results = new BulkResult[items.size()];
+        BulkOperations ops = mongoTemplate.bulkOps(mode(ordered), User.class);
+        List<Integer> positions = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        boolean stopped = false;
+        for (int i = 0; i < items.size(); i++) {
+            long index = firstIndex + i;
+            BulkUserUpdate item = items.get(i);
+            BulkResult rejected = precheck(item, index, existing, seen, stopped);
+            if (rejected != null) {
+                results[i] = rejected;
+                stopped |= ordered && rejected.isFailure();
+                continue;
+            }
+            ops.remove(new Query(Criteria.where("_id").is(item.getId())));
+            positions.add(i);
+        }
+        // Short of one removal per item means another request deleted one of these users first. Mongo
+        // does not say which, and either way the user is gone, so the results stand and the counts
+        // are recounted below; discarding the avatar and revoking tokens again is harmless
+        boolean confirmed = write(ops, positions, results, firstIndex, ordered, i -> items.get(i).getId(),
+                BulkResult.Status.DELETED, BulkWriteResult::getDeletedCount);
+        invalidate(results);
+
+        Instant now = Instant.now();
+        List<String> deletedIds = new ArrayList<>();
+        boolean adminRemoved = false;
+        for (BulkResult result : results) {
+            if (result.getStatus() == BulkResult.Status.DELETED) {
+                User removed = existing.get(result.getId());
+                deletedIds.add(result.getId());
+                roleCounts.removed(removed.getRoles());
+                adminRemoved |= isAdmin(removed);
+                avatarService.discard(removed);
+                auditLog.record(AuditEventType.USER_DELETED, removed.getId(), removed.getEmail(), actor, ip, "bulk");
+                if (removed.getEmail() != null) {
+                    revocationService.revokeAllBefore(removed.getEmail(), now);
+                }
+            }
+        }
+        refreshTokenService.revokeAllForUsers(deletedIds);
+        if (!confirmed) {
+            roleCounts.reconcile();
+        }
+        if (adminRemoved) {
+            adminSetupGuard.reopenIfNoAdmin();
+        }
+        return List.of(results);
+    }
+
+    // Every change is recorded with old and new roles, a grant of ADMIN also as ADMIN_CREATED
+    private void auditRolesChange(User before, Set<String> roles, String actor, String ip) {
+        Set<String> previous = before.getRoles() != null ? new TreeSet<>(before.getRoles()) : new TreeSet<>();
+        auditLog.record(AuditEventType.ROLES_CHANGED, before.getId(), before.getEmail(), actor, ip,
+                previous + " -> " + new TreeSet<>(roles));
+        if (roles.contains("ADMIN") && !previous.contains("ADMIN")) {
+            auditLog.record(AuditEventType.ADMIN_CREATED, before.getId(), before.getEmail(), actor, ip, "bulk roles");
+        }
+    }
+
+    private static boolean isAdmin(User user) {
+        return user.getRoles() != null && user.getRoles().contains("ADMIN");
+    }
+
+    // A repeated id in the chunk is rejected, otherwise each copy would be reported and booked as its own change
+    private static BulkResult precheck(BulkUserUpdate item, long index, Map<String, User> existing, Set<String> seen,
+                                       boolean skip) {
+        if (skip) {
+            return BulkResult.ok(index, item.getId(), BulkResult.Status.SKIPPED);
+        }
+        if (item.getId() == null) {
+            return BulkResult.failed(index, null, "Id is required");
+        }
+        if (!seen.add(item.getId())) {
+            return BulkResult.failed(index, item.getId(), "Duplicate id");
+        }
+        if (!existing.containsKey(item.getId())) {
+            return BulkResult.ok(index, item.getId(), BulkResult.Status.NOT_FOUND);
+        }
+        return null;
+    }
+
+    // The users of the chunk that exist, with just the fields the bookkeeping needs, in one query
+    private Map<String, User> lookup(List<BulkUserUpdate> items) {
+        List<String> ids = new ArrayList<>(items.size());
+        for (BulkUserUpdate item : items) {
+            if (item.getId() != null) {
+                ids.add(item.getId());
+            }
+        }
+        Map<String, User> existing = new HashMap<>();
+        if (ids.isEmpty()) {
+            return existing;
+        }
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("_id", "email", "roles", "avatar");
+        List<User> found = mongoBulkLookup.record(() -> mongoTemplate.find(query, User.class));
+        for (User user : found) {
+            existing.put(user.getId(), user);
+        }
+        return existing;
+    }
+
+    /**
+     * Executes the chunk and fills in the results of the items that went into it. Write errors
+     * come back by position in the bulk, which {@code positions} maps to the item.
+     *
+     * @return whether Mongo's {@code affected} count matches the items reported as {@code success},
+     * one document each; a bulk result has no per-item counts to check instead
+     */
+    private boolean write(BulkOperations ops, List<Integer> positions, BulkResult[] results, long firstIndex,
+                          boolean ordered, Function<Integer, String> idOf, BulkResult.Status success,
+                          ToIntFunction<BulkWriteResult> affected) {
+        if (positions.isEmpty()) {
+            return true;
+        }
+        String[] errors = new String[positions.size()];
+        int executed = positions.size();
+        BulkWriteResult result;
+        try {
+            result = mongoBulkWrite.record(ops::execute);
+        } catch (BulkOperationException e) {
+            result = e.getResult();
+            for (BulkWriteError error : e.getErrors()) {
+                errors[error.getIndex()] = error.getCode() == DUPLICATE_KEY
+                        ? "Email already exists"
+                        : error.getMessage();
+                if (ordered) {
+                    // An ordered bulk stops at its first error
+                    executed = Math.min(executed, error.getIndex() + 1);
+                }
+            }
+        }
+        int succeeded = 0;
+        for (int k = 0; k < positions.size(); k++) {
+            int i = positions.get(k);
+            long index = firstIndex + i;
+            String id = idOf.apply(i);
+            if (errors[k] != null) {
+                results[i] = BulkResult.failed(index, id, errors[k]);
+            } else if (k >= executed) {
+                results[i] = BulkResult.ok(index, id, BulkResult.Status.SKIPPED);
+            } else {
+                results[i] = BulkResult.ok(index, id, success);
+                succeeded++;
+            }
+        }
+        return result == null || affected.applyAsInt(result) == succeeded;
+    }
+
+    // After an update chunk matched fewer users than it reported, the ones deleted meanwhile become NOT_FOUND
+    private void notFoundIfGone(BulkResult[] results, long firstIndex) {
+        List<String> ids = new ArrayList<>();
+        for (BulkResult result : results) {
+            if (result.getStatus() == BulkResult.Status.UPDATED) {
+                ids.add(result.getId());
+            }
+        }
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("_id");
+        Set<String> remaining = new HashSet<>();
+        for (User user : mongoBulkLookup.record(() -> mongoTemplate.find(query, User.class))) {
+            remaining.add(user.getId());
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (results[i].getStatus() == BulkResult.Status.UPDATED && !remaining.contains(results[i].getId())) {
+                results[i] = BulkResult.ok(firstIndex + i, results[i].getId(), BulkResult.Status.NOT_FOUND);
+            }
+        }
+    }
+
+    private void invalidate(BulkResult[] results) {
+        for (BulkResult result : results) {
+            if (result.getStatus() == BulkResult.Status.UPDATED || result.getStatus() == BulkResult.Status.DELETED) {
+                userCache.invalidateId(result.getId());
+            }
+        }
+    }
+
+    private static BulkOperations.BulkMode mode(boolean ordered) {
+        return ordered ? BulkOperations.BulkMode.ORDERED : BulkOperations.BulkMode.UNORDERED;
+    }
+}
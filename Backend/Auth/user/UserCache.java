@@ -0,0 +1,177 @@
+package arious.backend.Auth.user;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Read-through, size-bounded, TTL'd near-cache for User documents, indexed by id and email.
+ *
+ * UserService invalidates entries on every write it performs, and {@link UserChangeStreamInvalidator}
+ * can additionally follow writes made by other nodes. Cached instances are shared, so callers
+ * must treat them as read-only and go through UserService to change anything.
+ */
+@Component
+public class UserCache {
+
+    private final ConcurrentHashMap<String, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Entry> byEmail = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public UserCache(@Value("${users.cache.enabled:true}") boolean enabled,
+                     @Value("${users.cache.max-size:10000}") int maxSize,
+                     @Value("${users.cache.ttl-ms:60000}") long ttlMillis) {
+        this.enabled = enabled;
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Optional<User> getById(String id, Supplier<Optional<User>> loader) {
+        return lookup(byId, id, loader);
+    }
+
+    public Optional<User> getByEmail(String email, Supplier<Optional<User>> loader) {
+        return lookup(byEmail, email, loader);
+    }
+
+    private Optional<User> lookup(ConcurrentHashMap<String, Entry> index, String key,
+                                  Supplier<Optional<User>> loader) {
+        if (!enabled || key == null) {
+            return loader.get();
+        }
+        Entry entry = index.get(key);
+        long now = System.currentTimeMillis();
+        if (entry != null && entry.expiresAt > now) {
+            hits.increment();
+            return Optional.of(entry.user);
+        }
+        if (entry != null) {
+            remove(entry);
+        }
+        misses.increment();
+        long loadGeneration = generation.get();
+        // Misses are not cached, a user created a moment later must be visible immediately
+        Optional<User> loaded = loader.get();
+        if (loaded.isPresent() && generation.get() == loadGeneration) {
+            put(loaded.get(), now);
+        }
+        return loaded;
+    }
+
+    private void put(User user, long now) {
+        if (user.getId() == null) {
+            return;
+        }
+        if (byId.size() >= maxSize) {
+            evict(now);
+        }
+        Entry entry = new Entry(user, now + ttlMillis);
+        byId.put(user.getId(), entry);
+        if (user.getEmail() != null) {
+            byEmail.put(user.getEmail(), entry);
+        }
+    }
+
+    public void invalidate(User user) {
+        if (user == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        invalidateId(user.getId());
+        if (user.getEmail() != null) {
+            Entry entry = byEmail.remove(user.getEmail());
+            if (entry != null) {
+                byId.remove(entry.user.getId(), entry);
+            }
+        }
+    }
+
+    public void invalidateId(String id) {
+        if (id == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        Entry entry = byId.remove(id);
+        if (entry != null && entry.user.getEmail() != null) {
+            byEmail.remove(entry.user.getEmail(), entry);
+        }
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        byId.clear();
+        byEmail.clear();
+    }
+
+    private void remove(Entry entry) {
+        byId.remove(entry.user.getId(), entry);
+        if (entry.user.getEmail() != null) {
+            byEmail.remove(entry.user.getEmail(), entry);
+        }
+    }
+
+    // Drops expired entries first, then arbitrary ones until we are back under 90% of the bound
+    private void evict(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int target = maxSize - Math.max(1, maxSize / 10);
+            Iterator<Map.Entry<String, Entry>> it = byId.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next().getValue();
+                if (entry.expiresAt <= now) {
+                    remove(entry);
+                    evictions.increment();
+                }
+            }
+            it = byId.entrySet().iterator();
+            while (byId.size() > target && it.hasNext()) {
+                remove(it.next().getValue());
+                evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public int size() { return byId.size(); }
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private static final class Entry {
+        final User user;
+        final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
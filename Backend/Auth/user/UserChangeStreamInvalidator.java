@@ -0,0 +1,70 @@
+package arious.backend.Auth.user;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps {@link UserCache} coherent across nodes by following the {@code users} change stream.
+ * Change streams need a replica set, so this is opt-in via {@code users.cache.change-stream.enabled}.
+ */
+@Component
+@ConditionalOnProperty(name = "users.cache.change-stream.enabled", havingValue = "true")
+public class UserChangeStreamInvalidator {
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeStreamInvalidator.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private MessageListenerContainer container;
+
+    public UserChangeStreamInvalidator(MongoTemplate mongoTemplate, UserCache userCache) {
+        this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+    }
+
+    @PostConstruct
+    void start() {
+        container = new DefaultMessageListenerContainer(mongoTemplate);
+        MessageListener<ChangeStreamDocument<Document>, Document> listener = message -> onChange(message.getRaw());
+        ChangeStreamRequest<Document> request = ChangeStreamRequest.builder(listener)
+                .collection(mongoTemplate.getCollectionName(User.class))
+                .build();
+        container.register(request, Document.class);
+        container.start();
+        logger.info("Following users change stream for cache invalidation");
+    }
+
+    private void onChange(ChangeStreamDocument<Document> change) {
+        if (change == null || change.getDocumentKey() == null) {
+            // Drops and invalidations of the whole collection carry no key
+            userCache.clear();
+            return;
+        }
+        BsonValue id = change.getDocumentKey().get("_id");
+        if (id == null) {
+            userCache.clear();
+        } else if (id.isObjectId()) {
+            userCache.invalidateId(id.asObjectId().getValue().toHexString());
+        } else if (id.isString()) {
+            userCache.invalidateId(id.asString().getValue());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
@@ -1,48 +1,165 @@
 package arious.backend.Auth.user;
 
+import arious.backend.Auth.Jwt.RefreshTokenService;
+import arious.backend.Auth.Jwt.TokenRevocationService;
+import arious.backend.Auth.audit.AuditEventType;
+import arious.backend.Auth.audit.AuditLog;
+import arious.backend.Auth.avatar.AvatarService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/users")
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174"})
 public class UserController {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
-    @Autowired
-    private UserRepository userRepository;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_FLUSH_EVERY = 500;
+    // Items per BulkOperations round-trip, also how many passwords are hashed per wave
+    private static final int BULK_CHUNK_SIZE = 500;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserBulkService userBulkService;
+
+    @Autowired
+    private AvatarService avatarService;
+
+    @Autowired
+    private UserViews userViews;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private AdminSetupGuard adminSetupGuard;
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')") // Only admins can view all users
-    public ResponseEntity<List<User>> getAllUsers() {
-        logger.info("Fetching all users");
-        List<User> users = userRepository.findAll();
-        logger.info("Found {} users", users.size());
-        return ResponseEntity.ok(users);
+    public ResponseEntity<byte[]> getAllUsers(@RequestParam(required = false) String after,
+                                              @RequestParam(defaultValue = "50") int limit,
+                                              WebRequest request) throws JsonProcessingException {
+        int pageSize = limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        logger.info("Fetching users after={} limit={}", after, pageSize);
+        UserPage<UserSummary> page = userService.listUsers(after, pageSize);
+        logger.info("Found {} users", page.getItems().size());
+        return userViews.page(page, request);
+    }
+
+    @GetMapping("/by-role/{role}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<byte[]> getUsersByRole(@PathVariable String role,
+                                                 @RequestParam(required = false) String after,
+                                                 @RequestParam(defaultValue = "50") int limit,
+                                                 WebRequest request) throws JsonProcessingException {
+        int pageSize = limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        return userViews.page(userService.listUsersByRole(role, after, pageSize), request);
+    }
+
+    // Served from memory, see RoleCounts for how fresh it is
+    @GetMapping("/role-counts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> getRoleCounts() {
+        return ResponseEntity.ok(userService.countUsersByRole());
+    }
+
+    // One JSON document per line, written as it comes off the Mongo cursor so memory stays flat
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        logger.info("Exporting all users as NDJSON");
+        ObjectWriter writer = objectMapper.writerFor(UserSummary.class)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> {
+            int written = 0;
+            try (Stream<UserSummary> users = userService.streamUsers();
+                 SequenceWriter sequence = writer.writeValues(out)) {
+                Iterator<UserSummary> it = users.iterator();
+                while (it.hasNext()) {
+                    sequence.write(it.next());
+                    if (++written % EXPORT_FLUSH_EVERY == 0) {
+                        sequence.flush();
+                    }
+                }
+            }
+            out.write('\n');
+            out.flush();
+            logger.info("Exported {} users", written);
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable String id) {
-        return userService.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getUserById(@PathVariable String id, WebRequest request) throws JsonProcessingException {
+        Optional<UserDetail> user = userService.findDetail(id);
+        if (user.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return userViews.detail(user.get(), request);
     }
 
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or #id == authentication.principal")
-    public ResponseEntity<?> updateUser(@PathVariable String id, @RequestBody User userDetails) {
+    public ResponseEntity<?> updateUser(@PathVariable String id, @RequestBody User userDetails,
+                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         try {
-            User updatedUser = userService.updateUser(id, userDetails);
-            return ResponseEntity.ok(updatedUser);
+            // If-Match wins over a version in the body; with neither the update is unconditional
+            Long ifMatchVersion = VersionTag.parseIfMatch(ifMatch);
+            Long expectedVersion = ifMatchVersion != null ? ifMatchVersion : userDetails.getVersion();
+            UserDetail updatedUser = userService.updateUser(id, userDetails, expectedVersion);
+            return ResponseEntity.ok().eTag(VersionTag.of(updatedUser.getVersion())).body(updatedUser);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(ifMatch != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT)
+                    .body(e.getMessage());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
@@ -50,12 +167,159 @@ public class UserController {
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> deleteUser(@PathVariable String id) {
+    public ResponseEntity<?> deleteUser(@PathVariable String id, HttpServletRequest request, Principal principal) {
+        try {
+            Optional<User> removed = userService.deleteById(id);
+            // Access tokens already handed out would otherwise keep working until they expire
+            removed.ifPresent(user -> revokeTokens(user, Instant.now()));
+            removed.ifPresent(avatarService::discard);
+            removed.ifPresent(user -> auditLog.record(AuditEventType.USER_DELETED, user.getId(), user.getEmail(),
+                    actorOf(principal), request.getRemoteAddr(), null));
+            if (removed.isPresent() && removed.get().getRoles() != null && removed.get().getRoles().contains("ADMIN")) {
+                adminSetupGuard.reopenIfNoAdmin();
+            }
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Revokes every access token issued before the given instant (default now) and all refresh tokens
+    @PostMapping("/{id}/revoke-tokens")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> revokeUserTokens(@PathVariable String id,
+                                              @RequestParam(required = false)
+                                              @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant before) {
         try {
-            userRepository.deleteById(id);
+            Optional<User> user = userService.findById(id);
+            if (user.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            revokeTokens(user.get(), before != null ? before : Instant.now());
             return ResponseEntity.ok().build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
+
+    /*
+     * Bulk endpoints. The body is NDJSON, one item per line, and is read in chunks of BULK_CHUNK_SIZE
+     * while the per-item results stream back as NDJSON, so neither side has to fit in memory.
+     * With ordered=true processing stops at the first failing item; the rest of its chunk is
+     * reported as SKIPPED and later lines are not read. Large imports may need a longer
+     * spring.mvc.async.request-timeout.
+     */
+
+    // Lines are User documents with a plain-text password
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> createUsers(InputStream body,
+                                                             @RequestParam(defaultValue = "false") boolean ordered,
+                                                             HttpServletRequest request, Principal principal) {
+        // Read here, the chunks are processed after the request thread has moved on
+        String actor = actorOf(principal);
+        String ip = request.getRemoteAddr();
+        return bulk("create", body, User.class,
+                (chunk, firstIndex) -> userBulkService.create(chunk, firstIndex, ordered, actor, ip), ordered);
+    }
+
+    // Lines are {"id": ..., <fields to change>}
+    @PatchMapping(value = "/bulk", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> updateUsers(InputStream body,
+                                                             @RequestParam(defaultValue = "false") boolean ordered) {
+        return bulk("update", body, BulkUserUpdate.class,
+                (chunk, firstIndex) -> userBulkService.update(chunk, firstIndex, ordered), ordered);
+    }
+
+    // Lines are {"id": ..., "roles": [...]}, the roles replace the current ones
+    @PutMapping(value = "/bulk/roles", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> updateUserRoles(InputStream body,
+                                                                 @RequestParam(defaultValue = "false") boolean ordered,
+                                                                 HttpServletRequest request, Principal principal) {
+        String actor = actorOf(principal);
+        String ip = request.getRemoteAddr();
+        return bulk("update-roles", body, BulkUserUpdate.class,
+                (chunk, firstIndex) -> userBulkService.updateRoles(chunk, firstIndex, ordered, actor, ip), ordered);
+    }
+
+    // Lines are {"id": ...}
+    @PostMapping(value = "/bulk/delete", consumes = "application/x-ndjson")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> deleteUsers(InputStream body,
+                                                             @RequestParam(defaultValue = "false") boolean ordered,
+                                                             HttpServletRequest request, Principal principal) {
+        String actor = actorOf(principal);
+        String ip = request.getRemoteAddr();
+        return bulk("delete", body, BulkUserUpdate.class,
+                (chunk, firstIndex) -> userBulkService.delete(chunk, firstIndex, ordered, actor, ip), ordered);
+    }
+
+    private <T> ResponseEntity<StreamingResponseBody> bulk(String operation, InputStream in, Class<T> type,
+                                                           BulkChunkHandler<T> handler, boolean ordered) {
+        ObjectReader reader = objectMapper.readerFor(type);
+        ObjectWriter writer = objectMapper.writerFor(BulkResult.class)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> {
+            long index = 0;
+            long failures = 0;
+            try (MappingIterator<T> items = reader.readValues(in);
+                 SequenceWriter results = writer.writeValues(out)) {
+                List<T> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+                boolean stop = false;
+                while (!stop) {
+                    chunk.clear();
+                    String parseError = null;
+                    try {
+                        while (chunk.size() < BULK_CHUNK_SIZE && items.hasNextValue()) {
+                            chunk.add(items.nextValue());
+                        }
+                    } catch (IOException e) {
+                        // A broken line ends the request, there is no reliable way to resync
+                        parseError = e.getMessage();
+                        stop = true;
+                    }
+                    if (!chunk.isEmpty()) {
+                        for (BulkResult result : handler.apply(chunk, index)) {
+                            results.write(result);
+                            if (result.isFailure()) {
+                                failures++;
+                                stop |= ordered;
+                            }
+                        }
+                        index += chunk.size();
+                    } else if (parseError == null) {
+                        break;
+                    }
+                    if (parseError != null) {
+                        results.write(BulkResult.failed(index, null, "Unreadable line: " + parseError));
+                        failures++;
+                    }
+                    results.flush();
+                }
+            }
+            out.write('\n');
+            out.flush();
+            logger.info("Bulk {}: {} items processed, {} failed", operation, index, failures);
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    @FunctionalInterface
+    private interface BulkChunkHandler<T> {
+        List<BulkResult> apply(List<T> chunk, long firstIndex);
+    }
+
+    private static String actorOf(Principal principal) {
+        return principal != null ? principal.getName() : null;
+    }
+
+    private void revokeTokens(User user, Instant before) {
+        revocationService.revokeAllBefore(user.getEmail(), before);
+        long families = refreshTokenService.revokeAllForUser(user.getId());
+        logger.info("Revoked tokens of {} issued before {}, {} refresh families", user.getEmail(), before, families);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package arious.backend.Auth.user;
+
+import arious.backend.Auth.avatar.AvatarRef;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Projection of one user for {@code GET /users/{id}}: the profile without the password hash
+ * or the {@link org.springframework.security.core.userdetails.UserDetails} getters of the entity.
+ * {@code version} is what the ETag is made of, see {@link VersionTag}.
+ */
+@Data
+public class UserDetail {
+    // Fields Mongo is asked to return, keep in sync with the properties below
+    static final String[] FIELDS = {"_id", "name", "surname", "email", "dateOfBirth", "phoneNumber", "address",
+            "nationality", "gender", "bio", "avatar", "roles", "createdDate", "version"};
+
+    @Id
+    private String id;
+    private String name;
+    private String surname;
+    private String email;
+    private LocalDate dateOfBirth;
+    private String phoneNumber;
+    private String address;
+    private String nationality;
+    private String gender;
+    private String bio;
+    private AvatarRef avatar;
+    private Set<String> roles;
+    private LocalDateTime createdDate;
+    private Long version;
+}
@@ -0,0 +1,38 @@
+package arious.backend.Auth.user;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes sure the indexes the user flows depend on exist before we take traffic.
+ * Registration relies on the unique email index to reject duplicates instead of
+ * pre-checking with a find, and auto-index-creation is off by default in Spring Boot.
+ * The {roles, _id} index is multikey: it answers "is there an admin" with a single key lookup
+ * and serves the by-role listing as one range scan already in keyset order.
+ */
+@Component
+public class UserIndexInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(UserIndexInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    void ensureIndexes() {
+        String name = mongoTemplate.indexOps(User.class)
+                .ensureIndex(new Index("email", Sort.Direction.ASC).named("email").unique());
+        logger.info("Verified unique index on users.email: {}", name);
+
+        String roles = mongoTemplate.indexOps(User.class)
+                .ensureIndex(new Index().on("roles", Sort.Direction.ASC).on("_id", Sort.Direction.ASC).named("roles_id"));
+        logger.info("Verified role index on users.roles: {}", roles);
+    }
+}
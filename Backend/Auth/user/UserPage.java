@@ -0,0 +1,20 @@
+package arious.backend.Auth.user;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@code nextCursor} back as {@code after}
+ * to get the following page, it is {@code null} on the last one.
+ */
+public class UserPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public UserPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
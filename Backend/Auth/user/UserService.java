@@ -1,95 +1,339 @@
 package arious.backend.Auth.user;
 
+import arious.backend.Auth.metrics.AuthMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 public class UserService implements UserDetailsService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    private static final int EXPORT_BATCH_SIZE = 500;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final MongoTemplate mongoTemplate;
+    private final UserCache userCache;
+    private final AuthMetrics metrics;
+    private final RoleCounts roleCounts;
+
+    // One timer per kind of round-trip, tagged op= on auth.mongo
+    private final Timer mongoFindByEmail;
+    private final Timer mongoFindById;
+    private final Timer mongoFindDetail;
+    private final Timer mongoInsert;
+    private final Timer mongoSave;
+    private final Timer mongoUpdateFields;
+    private final Timer mongoUpdatePassword;
+    private final Timer mongoDelete;
+    private final Timer mongoListUsers;
+    private final Timer mongoAdminExists;
+    private final Timer mongoListByRole;
 
     @Autowired
     public UserService(UserRepository userRepository,
                        @Lazy PasswordEncoder passwordEncoder,
-                       MongoTemplate mongoTemplate) {
+                       MongoTemplate mongoTemplate,
+                       UserCache userCache,
+                       AuthMetrics metrics,
+                       RoleCounts roleCounts) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.mongoTemplate = mongoTemplate;
+        this.userCache = userCache;
+        this.metrics = metrics;
+        this.roleCounts = roleCounts;
+        this.mongoFindByEmail = metrics.mongoTimer("findByEmail");
+        this.mongoFindById = metrics.mongoTimer("findById");
+        this.mongoFindDetail = metrics.mongoTimer("findDetail");
+        this.mongoInsert = metrics.mongoTimer("insert");
+        this.mongoSave = metrics.mongoTimer("save");
+        this.mongoUpdateFields = metrics.mongoTimer("updateFields");
+        this.mongoUpdatePassword = metrics.mongoTimer("updatePasswordHash");
+        this.mongoDelete = metrics.mongoTimer("delete");
+        this.mongoListUsers = metrics.mongoTimer("listUsers");
+        this.mongoAdminExists = metrics.mongoTimer("adminExists");
+        this.mongoListByRole = metrics.mongoTimer("listByRole");
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByEmail(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
+        long start = System.nanoTime();
+        try {
+            return findByEmail(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
+        } finally {
+            metrics.recordUserLoad(System.nanoTime() - start);
+        }
     }
 
     public User createUser(User user) {
         user.setPassword(passwordEncoder.encode(user.getPassword()));
+        return insertEncodedUser(user);
+    }
+
+    // Password has already been hashed by the caller, e.g. on the PasswordHasher pool
+    private User insertEncodedUser(User user) {
         if (user.getRoles().isEmpty()) {
             user.getRoles().add("USER"); // Default role
         }
-        return userRepository.save(user);
+        // Plain insert, the unique email index rejects duplicates
+        User inserted = mongoInsert.record(() -> userRepository.insert(user));
+        roleCounts.added(inserted.getRoles());
+        return inserted;
     }
 
     public User registerUser(User user) {
         try {
-            Optional<User> existingUser = userRepository.findByEmail(user.getEmail());
-            if (existingUser.isPresent()) {
-                throw new RuntimeException("Email already exists");
-            }
             return createUser(user);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Email already exists");
         } catch (Exception e) {
-            System.err.println("Error in registerUser: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error in registerUser: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to register user: " + e.getMessage());
+        }
+    }
+
+    public User registerEncodedUser(User user) {
+        try {
+            return insertEncodedUser(user);
+        } catch (DuplicateKeyException e) {
+            throw new RuntimeException("Email already exists");
+        } catch (Exception e) {
+            logger.error("Error in registerEncodedUser: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to register user: " + e.getMessage());
         }
     }
 
     public Optional<User> findByEmail(String email) {
-        return userRepository.findByEmail(email);
+        return userCache.getByEmail(email, () -> mongoFindByEmail.record(() -> userRepository.findByEmail(email)));
     }
 
-    public User updateUser(String id, User userDetails) {
-        Optional<User> userOptional = userRepository.findById(id);
-        if (userOptional.isEmpty()) {
-            throw new RuntimeException("User not found");
+    // Resolves the full User document for a principal, which may be a claims-only JwtPrincipal
+    public Optional<User> hydrate(UserDetails principal) {
+        if (principal == null) {
+            return Optional.empty();
         }
+        if (principal instanceof User) {
+            return Optional.of((User) principal);
+        }
+        return findByEmail(principal.getUsername());
+    }
 
-        User user = userOptional.get();
-        // Update fields that should be updatable
-        if (userDetails.getName() != null) user.setName(userDetails.getName());
-        if (userDetails.getSurname() != null) user.setSurname(userDetails.getSurname());
-        if (userDetails.getPhoneNumber() != null) user.setPhoneNumber(userDetails.getPhoneNumber());
-        if (userDetails.getAddress() != null) user.setAddress(userDetails.getAddress());
-        if (userDetails.getBio() != null) user.setBio(userDetails.getBio());
+    public UserDetail updateUser(String id, User userDetails) {
+        return updateUser(id, userDetails, null);
+    }
 
-        return userRepository.save(user);
+    /**
+     * Writes the non-null editable fields as one {@code $set} in a single findAndModify, so an
+     * admin and the user editing different fields at the same time no longer overwrite each other.
+     * With an {@code expectedVersion} the update only applies if the user is still at that version,
+     * otherwise it fails with {@link OptimisticLockingFailureException} and nothing is written.
+     *
+     * @return the updated user as the {@link UserDetail} projection, so never the password hash,
+     * also when there was nothing to change
+     */
+    public UserDetail updateUser(String id, User userDetails, Long expectedVersion) {
+        Update update = editableFields(userDetails);
+        if (update == null) {
+            return findDetail(id).orElseThrow(() -> new RuntimeException("User not found"));
+        }
+        UserDetail updated = mongoUpdateFields.record(() -> mongoTemplate.findAndModify(
+                patchQuery(id, expectedVersion), update, FindAndModifyOptions.options().returnNew(true),
+                UserDetail.class, mongoTemplate.getCollectionName(User.class)));
+        userCache.invalidateId(id);
+        if (updated != null) {
+            return updated;
+        }
+        // Only a failed update pays for the second lookup telling a stale version from a missing user
+        if (expectedVersion != null && mongoTemplate.exists(new Query(Criteria.where("_id").is(id)), User.class)) {
+            throw versionConflict(id, expectedVersion);
+        }
+        throw new RuntimeException("User not found");
+    }
+
+    // A request body about to become a new user. The id and version are the server's to assign, and
+    // the avatar is only ever set by AvatarService#swap, never copied from a client
+    public static User asNewUser(User user) {
+        user.setId(null);
+        user.setAvatar(null);
+        user.setVersion(null);
+        return user;
+    }
+
+    // The fields PUT /users/{id} may change, plus the version bump; null if there is nothing to set
+    public static Update editableFields(User userDetails) {
+        Update update = new Update();
+        if (userDetails.getName() != null) update.set("name", userDetails.getName());
+        if (userDetails.getSurname() != null) update.set("surname", userDetails.getSurname());
+        if (userDetails.getPhoneNumber() != null) update.set("phoneNumber", userDetails.getPhoneNumber());
+        if (userDetails.getAddress() != null) update.set("address", userDetails.getAddress());
+        if (userDetails.getBio() != null) update.set("bio", userDetails.getBio());
+        if (update.getUpdateObject().isEmpty()) {
+            return null;
+        }
+        return update.inc("version", 1);
+    }
+
+    // Shared with the reactive service so both stacks apply the same version guard
+    public static Query patchQuery(String id, Long expectedVersion) {
+        Query query = new Query(Criteria.where("_id").is(id));
+        if (expectedVersion != null) {
+            // {$in: [0, null]} also matches documents that predate the version field
+            query.addCriteria(expectedVersion == 0
+                    ? Criteria.where("version").in(0L, null)
+                    : Criteria.where("version").is(expectedVersion));
+        }
+        query.fields().include(UserDetail.FIELDS);
+        return query;
+    }
+
+    public static OptimisticLockingFailureException versionConflict(String id, long expectedVersion) {
+        return new OptimisticLockingFailureException(
+                "User " + id + " was modified since version " + expectedVersion);
     }
 
     public Optional<User> findById(String id) {
-        return userRepository.findById(id);
+        return userCache.getById(id, () -> mongoFindById.record(() -> userRepository.findById(id)));
+    }
+
+    // One _id lookup that brings back only the profile fields, bypassing the entity cache
+    public Optional<UserDetail> findDetail(String id) {
+        Query query = detailQuery(id);
+        return Optional.ofNullable(mongoFindDetail.record(() ->
+                mongoTemplate.findOne(query, UserDetail.class, mongoTemplate.getCollectionName(User.class))));
+    }
+
+    public static Query detailQuery(String id) {
+        Query query = new Query(Criteria.where("_id").is(toObjectId(id)));
+        query.fields().include(UserDetail.FIELDS);
+        return query;
     }
 
     public User save(User user) {
-        return userRepository.save(user);
+        if (user.getId() == null) {
+            User inserted = mongoInsert.record(() -> userRepository.insert(user));
+            roleCounts.added(inserted.getRoles());
+            return inserted;
+        }
+        // Same single round-trip as save(), but hands back the previous roles for the counts
+        User previous = mongoSave.record(() -> mongoTemplate.findAndReplace(
+                new Query(Criteria.where("_id").is(user.getId())), user, FindAndReplaceOptions.options().upsert()));
+        roleCounts.changed(previous != null ? previous.getRoles() : null, user.getRoles());
+        userCache.invalidate(user);
+        return user;
     }
 
-    // Add method to check if any admin exists
-    public boolean adminExists() {
+    /**
+     * Swaps the stored hash only if it is still the one we verified against,
+     * so a rehash can never overwrite a password change that happened meanwhile.
+     */
+    public boolean updatePasswordHash(String id, String expectedHash, String newHash) {
+        Query query = new Query(Criteria.where("_id").is(id).and("password").is(expectedHash));
+        boolean updated = mongoUpdatePassword.record(() ->
+                mongoTemplate.updateFirst(query, Update.update("password", newHash), User.class).getModifiedCount() > 0);
+        userCache.invalidateId(id);
+        return updated;
+    }
+
+    // Returns the removed user so callers can clean up what hangs off it, such as issued tokens
+    public Optional<User> deleteById(String id) {
+        User removed = mongoDelete.record(() ->
+                mongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(id)), User.class));
+        userCache.invalidateId(id);
+        if (removed != null) {
+            roleCounts.removed(removed.getRoles());
+        }
+        return Optional.ofNullable(removed);
+    }
+
+    /**
+     * Keyset page over {@code _id}, projected to {@link UserSummary}.
+     * Each page is a single indexed range scan no matter how deep the caller pages.
+     */
+    public UserPage<UserSummary> listUsers(String after, int limit) {
+        Query query = summaryQuery(after).limit(limit + 1);
+        List<UserSummary> users = mongoListUsers.record(() ->
+                mongoTemplate.find(query, UserSummary.class, mongoTemplate.getCollectionName(User.class)));
+        return toPage(users, limit, UserSummary::getId);
+    }
+
+    // Keyset page of the users holding a role, one range scan on the {roles, _id} index
+    public UserPage<UserSummary> listUsersByRole(String role, String after, int limit) {
+        Query query = summaryQuery(after).addCriteria(Criteria.where("roles").is(role)).limit(limit + 1);
+        List<UserSummary> users = mongoListByRole.record(() ->
+                mongoTemplate.find(query, UserSummary.class, mongoTemplate.getCollectionName(User.class)));
+        return toPage(users, limit, UserSummary::getId);
+    }
+
+    public Map<String, Long> countUsersByRole() {
+        return roleCounts.snapshot();
+    }
+
+    // Cursor-backed, the caller must close the stream
+    public Stream<UserSummary> streamUsers() {
+        Query query = summaryQuery(null).cursorBatchSize(EXPORT_BATCH_SIZE);
+        return mongoTemplate.stream(query, UserSummary.class, mongoTemplate.getCollectionName(User.class));
+    }
+
+    // Shared with the reactive listing so both stacks page identically
+    public static Query summaryQuery(String after) {
         Query query = new Query();
-        query.addCriteria(Criteria.where("roles").in("ADMIN"));
-        return mongoTemplate.exists(query, User.class);
+        if (after != null && !after.isEmpty()) {
+            query.addCriteria(Criteria.where("_id").gt(toObjectId(after)));
+        }
+        query.fields().include(UserSummary.FIELDS);
+        query.with(Sort.by(Sort.Direction.ASC, "_id"));
+        return query;
+    }
+
+    static Object toObjectId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    // We fetch limit + 1 rows, the extra one only tells us whether there is a next page
+    public static <T> UserPage<T> toPage(List<T> rows, int limit, Function<T, String> cursorOf) {
+        if (rows.size() <= limit) {
+            return new UserPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new UserPage<>(items, cursorOf.apply(items.get(limit - 1)));
+    }
+
+    /**
+     * Answered from {@link RoleCounts} when they say there is an admin; a zero, or counts not
+     * loaded yet, is confirmed with an indexed lookup. Setup of the first admin does not rely on
+     * this alone, see {@link AdminSetupGuard}.
+     */
+    public boolean adminExists() {
+        if (roleCounts.count("ADMIN") > 0) {
+            return true;
+        }
+        Query query = new Query(Criteria.where("roles").is("ADMIN"));
+        return mongoAdminExists.record(() -> mongoTemplate.exists(query, User.class));
     }
 }
\ No newline at end of file
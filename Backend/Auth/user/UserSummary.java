@@ -0,0 +1,28 @@
+package arious.backend.Auth.user;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Projection of the users collection for listings. Leaves out the password hash
+ * and the free-form fields (bio, avatar reference) so they never leave Mongo.
+ */
+@Data
+public class UserSummary {
+    // Fields Mongo is asked to return, keep in sync with the properties below
+    static final String[] FIELDS = {"_id", "name", "surname", "email", "phoneNumber", "nationality", "roles", "createdDate", "version"};
+
+    @Id
+    private String id;
+    private String name;
+    private String surname;
+    private String email;
+    private String phoneNumber;
+    private String nationality;
+    private Set<String> roles;
+    private LocalDateTime createdDate;
+    private Long version;
+}
@@ -0,0 +1,52 @@
+package arious.backend.Auth.user;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Renders the read views of users for the servlet controllers. The Jackson writers are resolved
+ * once here instead of per response by the message converter, and the JSON goes out as bytes.
+ *
+ * Every view is tagged (see {@link VersionTag}) and a matching {@code If-None-Match} gets a 304
+ * before anything is serialized, so a dashboard polling an unchanged user or page costs the one
+ * Mongo read and no body.
+ */
+@Component
+public class UserViews {
+
+    private final ObjectWriter detailWriter;
+    private final ObjectWriter pageWriter;
+
+    public UserViews(ObjectMapper objectMapper) {
+        JavaType pageType = objectMapper.getTypeFactory().constructParametricType(UserPage.class, UserSummary.class);
+        this.detailWriter = objectMapper.writerFor(UserDetail.class);
+        this.pageWriter = objectMapper.writerFor(pageType);
+    }
+
+    public ResponseEntity<byte[]> detail(UserDetail user, WebRequest request) throws JsonProcessingException {
+        return render(VersionTag.of(user.getVersion()), user, detailWriter, request);
+    }
+
+    public ResponseEntity<byte[]> page(UserPage<UserSummary> page, WebRequest request) throws JsonProcessingException {
+        return render(VersionTag.of(page), page, pageWriter, request);
+    }
+
+    private static ResponseEntity<byte[]> render(String etag, Object view, ObjectWriter writer, WebRequest request)
+            throws JsonProcessingException {
+        // Sets the 304 status and ETag on the response itself when If-None-Match matches
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(writer.writeValueAsBytes(view));
+    }
+}
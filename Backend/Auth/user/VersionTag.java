@@ -0,0 +1,65 @@
+package arious.backend.Auth.user;
+
+/**
+ * The user {@code version} as an HTTP entity tag. A tag is the quoted version number; weak
+ * tags ({@code W/"3"}) are accepted on the way in since the version identifies the whole document.
+ * A page of users is tagged with a hash of the ids and versions on it, which changes whenever a
+ * user on the page is edited or the set of users on it changes.
+ */
+public final class VersionTag {
+
+    private VersionTag() {
+    }
+
+    // Documents written before versioning have no version and count as 0
+    public static String of(Long version) {
+        return version != null ? version.toString() : "0";
+    }
+
+    // 64-bit FNV-1a over each id and version, plus the cursor
+    public static String of(UserPage<UserSummary> page) {
+        long hash = 0xcbf29ce484222325L;
+        for (UserSummary user : page.getItems()) {
+            hash = mix(hash, user.getId());
+            hash = mix(hash, of(user.getVersion()));
+        }
+        hash = mix(hash, page.getNextCursor());
+        return Long.toHexString(hash);
+    }
+
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        // Separator, so ("ab", "c") and ("a", "bc") differ
+        return (hash ^ 0xFF) * 0x100000001b3L;
+    }
+
+    /**
+     * @return the version an {@code If-Match} header asks for, or {@code null} if there is no
+     * header or it is {@code *}
+     * @throws IllegalArgumentException if the tag is not a version this service handed out
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.charAt(0) == '"' && tag.charAt(tag.length() - 1) == '"') {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match: " + ifMatch);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package arious.backend.bench;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load driver against a running backend, used to compare the platform-thread pool
+ * with {@code spring.threads.virtual.enabled=true}. Keeps {@code concurrency} requests in flight
+ * until {@code requests} have completed, then prints one JSON line with throughput, latency
+ * percentiles and the status code histogram (503 means the hashing pool pushed back). Given the
+ * backend's pid on Linux, it also samples the backend's OS thread count during the run.
+ *
+ * <pre>
+ * java -cp benchmarks.jar arious.backend.bench.AuthLoadTest http://localhost:8080 login 2000 20000 platform [pid]
+ * </pre>
+ * Scenarios: {@code login} (BCrypt plus Mongo) and {@code me} (JWT filter plus a user lookup).
+ */
+public final class AuthLoadTest {
+
+    private static final String EMAIL = "load.user@example.com";
+    private static final String PASSWORD = "load-test-password";
+    private static final Pattern JSON_STRING = Pattern.compile("\"(token|userId)\"\\s*:\\s*\"([^\"]+)\"");
+
+    private AuthLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        String scenario = args.length > 1 ? args[1] : "login";
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int requests = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+        String label = args.length > 4 ? args[4] : "run";
+        Path serverStatus = args.length > 5 ? Path.of("/proc", args[5], "status") : null;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String credentials = "{\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}";
+
+        // Ignore the result: the user is usually left over from an earlier run
+        send(client, post(baseUrl + "/auth/register",
+                "{\"name\":\"Load\",\"surname\":\"Test\",\"email\":\"" + EMAIL + "\",\"password\":\"" + PASSWORD + "\"}"));
+        Map<String, String> session = parse(send(client, post(baseUrl + "/auth/login", credentials)).body());
+        if (!session.containsKey("token")) {
+            throw new IllegalStateException("Could not log in as " + EMAIL);
+        }
+
+        HttpRequest request = "me".equals(scenario)
+                ? HttpRequest.newBuilder(URI.create(baseUrl + "/auth/" + session.get("userId")))
+                        .header("Authorization", "Bearer " + session.get("token"))
+                        .timeout(Duration.ofSeconds(60))
+                        .GET().build()
+                : post(baseUrl + "/auth/login", credentials);
+
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder errors = new LongAdder();
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(requests);
+
+        ThreadSampler sampler = serverStatus != null ? ThreadSampler.start(serverStatus) : null;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies[next.getAndIncrement()] = System.nanoTime() - sent;
+                        if (error != null) {
+                            errors.increment();
+                        } else {
+                            statuses.computeIfAbsent(response.statusCode(), code -> new LongAdder()).increment();
+                        }
+                        inFlight.release();
+                        done.countDown();
+                    });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        int threadsPeak = sampler != null ? sampler.stop() : -1;
+
+        Arrays.sort(latencies);
+        Map<Integer, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((code, count) -> statusCounts.put(code, count.sum()));
+
+        StringBuilder json = new StringBuilder()
+                .append("{\"label\":\"").append(label)
+                .append("\",\"scenario\":\"").append(scenario)
+                .append("\",\"concurrency\":").append(concurrency)
+                .append(",\"requests\":").append(requests)
+                .append(",\"throughputPerSec\":").append(String.format(Locale.ROOT, "%.1f", requests / (elapsed / 1e9)))
+                .append(",\"p50Ms\":").append(millis(percentile(latencies, 0.50)))
+                .append(",\"p99Ms\":").append(millis(percentile(latencies, 0.99)))
+                .append(",\"maxMs\":").append(millis(latencies[requests - 1]))
+                .append(",\"errors\":").append(errors.sum());
+        if (sampler != null) {
+            json.append(",\"serverThreadsPeak\":").append(threadsPeak)
+                    .append(",\"serverThreadsAfter\":").append(ThreadSampler.read(serverStatus));
+        }
+        json.append(",\"statuses\":{");
+        String separator = "";
+        for (Map.Entry<Integer, Long> entry : statusCounts.entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            separator = ",";
+        }
+        System.out.println(json.append("}}"));
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Just enough JSON for the two fields we need, keeps the driver free of extra dependencies
+    private static Map<String, String> parse(String body) {
+        Map<String, String> fields = new TreeMap<>();
+        Matcher matcher = JSON_STRING.matcher(body);
+        while (matcher.find()) {
+            fields.putIfAbsent(matcher.group(1), matcher.group(2));
+        }
+        return fields;
+    }
+
+    // Polls the Threads: line of /proc/<pid>/status, which counts carriers but not virtual threads
+    private static final class ThreadSampler implements Runnable {
+
+        private final Path status;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private int peak;
+
+        private ThreadSampler(Path status) {
+            this.status = status;
+            this.thread = new Thread(this, "thread-sampler");
+            thread.setDaemon(true);
+        }
+
+        static ThreadSampler start(Path status) {
+            ThreadSampler sampler = new ThreadSampler(status);
+            sampler.thread.start();
+            return sampler;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                peak = Math.max(peak, read(status));
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        int stop() throws InterruptedException {
+            running = false;
+            thread.join();
+            return peak;
+        }
+
+        static int read(Path status) {
+            try {
+                for (String line : Files.readAllLines(status)) {
+                    if (line.startsWith("Threads:")) {
+                        return Integer.parseInt(line.substring("Threads:".length()).trim());
+                    }
+                }
+            } catch (IOException e) {
+                // The backend went away, report what was seen so far
+            }
+            return -1;
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,108 @@
+package arious.backend.bench;
+
+import arious.backend.Auth.Jwt.JwtKeyRing;
+import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.Jwt.LocalRevocationChannel;
+import arious.backend.Auth.Jwt.TokenRevocationService;
+import arious.backend.Auth.Jwt.VerifiedTokenCache;
+import arious.backend.Auth.metrics.AuthMetrics;
+import arious.backend.Auth.user.RoleCounts;
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserCache;
+import arious.backend.Auth.user.UserRepository;
+import arious.backend.Auth.user.UserService;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Wires the production classes by hand, the way Spring would, without a context.
+ */
+final class BenchFixtures {
+
+    static final String SECRET = "benchmark-secret-benchmark-secret-benchmark-secret-0123456789";
+    static final String EMAIL = "bench.user@example.com";
+
+    private BenchFixtures() {
+    }
+
+    static User user() {
+        User user = new User();
+        user.setId("64b7f0c2e4b0a1a2b3c4d5e6");
+        user.setEmail(EMAIL);
+        user.setName("Bench");
+        user.setSurname("User");
+        user.setRoles(new HashSet<>(Set.of("USER", "ADMIN")));
+        return user;
+    }
+
+    static JwtUtil jwtUtil(UserRepository repository, boolean tokenCache, boolean statelessPrincipal) {
+        return jwtUtil(repository, tokenCache, statelessPrincipal, "HS256");
+    }
+
+    static JwtUtil jwtUtil(UserRepository repository, boolean tokenCache, boolean statelessPrincipal,
+                           String algorithm) {
+        JwtUtil jwtUtil = new JwtUtil(repository, new VerifiedTokenCache(tokenCache, 10_000),
+                new JwtKeyRing(SECRET, algorithm, 0L, 900_000L, ""),
+                new TokenRevocationService(new LocalRevocationChannel(), 1 << 20, 5, 3_600_000L),
+                AuthMetrics.simple());
+        set(jwtUtil, "expiration", 3_600_000L);
+        set(jwtUtil, "statelessPrincipal", statelessPrincipal);
+        invoke(jwtUtil, "init");
+        return jwtUtil;
+    }
+
+    static UserService userService(UserRepository repository, boolean userCache) {
+        // The auth path never touches MongoTemplate or the encoder
+        return new UserService(repository, null, null, new UserCache(userCache, 10_000, 60_000),
+                AuthMetrics.simple(), new RoleCounts(null));
+    }
+
+    static String expiredToken() {
+        long past = System.currentTimeMillis() - 3_600_000L;
+        return Jwts.builder()
+                .subject(EMAIL)
+                .claim("roles", List.of("USER"))
+                .issuedAt(new Date(past - 60_000L))
+                .expiration(new Date(past))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    // Well-formed and unexpired, but signed with a key the ring does not hold
+    static String foreignToken() {
+        return Jwts.builder()
+                .subject(EMAIL)
+                .claim("roles", List.of("USER"))
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000L))
+                .signWith(Keys.hmacShaKeyFor(new StringBuilder(SECRET).reverse().toString().getBytes()), Jwts.SIG.HS256)
+                .compact();
+    }
+
+    static void set(Object target, String field, Object value) {
+        try {
+            Field f = target.getClass().getDeclaredField(field);
+            f.setAccessible(true);
+            f.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + field, e);
+        }
+    }
+
+    static void invoke(Object target, String method) {
+        try {
+            Method m = target.getClass().getDeclaredMethod(method);
+            m.setAccessible(true);
+            m.invoke(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot invoke " + method, e);
+        }
+    }
+}
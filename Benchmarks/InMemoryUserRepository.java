@@ -0,0 +1,64 @@
+package arious.backend.bench;
+
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory stand-in for the Mongo-backed UserRepository, so the benchmarks measure
+ * our code rather than the network. Only the methods the auth path uses are implemented.
+ */
+final class InMemoryUserRepository {
+
+    private InMemoryUserRepository() {
+    }
+
+    static UserRepository create(User... users) {
+        Map<String, User> byId = new ConcurrentHashMap<>();
+        Map<String, User> byEmail = new ConcurrentHashMap<>();
+        for (User user : users) {
+            byId.put(user.getId(), user);
+            byEmail.put(user.getEmail(), user);
+        }
+
+        return (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(),
+                new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "findByEmail":
+                            return Optional.ofNullable(byEmail.get((String) args[0]));
+                        case "findById":
+                            return Optional.ofNullable(byId.get((String) args[0]));
+                        case "save":
+                        case "insert": {
+                            User user = (User) args[0];
+                            byId.put(user.getId(), user);
+                            byEmail.put(user.getEmail(), user);
+                            return user;
+                        }
+                        case "deleteById": {
+                            User removed = byId.remove((String) args[0]);
+                            if (removed != null) {
+                                byEmail.remove(removed.getEmail());
+                            }
+                            return null;
+                        }
+                        case "count":
+                            return (long) byId.size();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemoryUserRepository";
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
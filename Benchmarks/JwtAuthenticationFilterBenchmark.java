@@ -0,0 +1,114 @@
+package arious.backend.bench;
+
+import arious.backend.Auth.Jwt.JwtAuthenticationFilter;
+import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.Jwt.PublicRoutes;
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One pass of JwtAuthenticationFilter against mock servlet requests.
+ * The request object is built inside the benchmark because OncePerRequestFilter
+ * marks it as filtered; {@code baseline} measures that overhead on its own.
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} of doFilter minus baseline is what the
+ * filter itself allocates per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"valid", "expired", "malformed", "badSignature", "missing", "public"})
+    public String scenario;
+
+    @Param({"false", "true"})
+    public boolean statelessPrincipal;
+
+    private JwtAuthenticationFilter filter;
+    private String method = "GET";
+    private String uri;
+    private String authorization;
+
+    private final FilterChain chain = (request, response) -> { };
+
+    @Setup
+    public void setup() {
+        User user = BenchFixtures.user();
+        UserRepository repository = InMemoryUserRepository.create(user);
+        JwtUtil jwtUtil = BenchFixtures.jwtUtil(repository, true, statelessPrincipal);
+        filter = new JwtAuthenticationFilter(jwtUtil, BenchFixtures.userService(repository, true),
+                PublicRoutes.defaults());
+
+        uri = "/users/" + user.getId();
+        switch (scenario) {
+            case "valid":
+                authorization = "Bearer " + jwtUtil.generateToken(user);
+                break;
+            case "expired":
+                authorization = "Bearer " + BenchFixtures.expiredToken();
+                break;
+            case "malformed":
+                authorization = "Bearer not.a-valid.token";
+                break;
+            case "badSignature":
+                authorization = "Bearer " + BenchFixtures.foreignToken();
+                break;
+            case "missing":
+                authorization = null;
+                break;
+            case "public":
+                // Public routes are method-aware, login is only public as a POST
+                method = "POST";
+                uri = "/auth/login";
+                authorization = null;
+                break;
+            default:
+                throw new IllegalArgumentException(scenario);
+        }
+    }
+
+    @Benchmark
+    public void doFilter(Blackhole bh) throws ServletException, IOException {
+        MockHttpServletRequest request = newRequest();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void baseline(Blackhole bh) {
+        bh.consume(newRequest());
+        bh.consume(new MockHttpServletResponse());
+    }
+
+    private MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,93 @@
+package arious.backend.bench;
+
+import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.Jwt.VerifiedToken;
+import arious.backend.Auth.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuance, verification and claim extraction in JwtUtil.
+ * {@code tokenCache=false} measures the full HMAC + JSON decode on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    @Param({"false", "true"})
+    public boolean tokenCache;
+
+    @Param({"HS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtUtil jwtUtil;
+    private User user;
+    private String token;
+    private String header;
+
+    @Setup
+    public void setup() {
+        user = BenchFixtures.user();
+        jwtUtil = BenchFixtures.jwtUtil(InMemoryUserRepository.create(user), tokenCache, false, algorithm);
+        token = jwtUtil.generateToken(user);
+        header = "Bearer " + token;
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public VerifiedToken verify() {
+        return jwtUtil.verify(token);
+    }
+
+    // The filter's path: the token is read in place behind "Bearer "
+    @Benchmark
+    public VerifiedToken verifyBearer() {
+        return jwtUtil.verifyBearer(header);
+    }
+
+    // What the filter used to do, for the -prof gc comparison with verifyBearer
+    @Benchmark
+    public VerifiedToken verifySubstring() {
+        return jwtUtil.verify(header.substring(7));
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String getEmailFromToken() {
+        return jwtUtil.getEmailFromToken(token);
+    }
+
+    @Benchmark
+    public Set<String> extractRoles() {
+        return jwtUtil.extractRoles(token);
+    }
+
+    @Benchmark
+    public Object extractClaim() {
+        return jwtUtil.extractClaim(token, claims -> claims.get("roles"));
+    }
+}
@@ -0,0 +1,47 @@
+package arious.backend.bench;
+
+import arious.backend.Auth.user.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User.getAuthorities, called several times per request by Spring Security.
+ * Run with {@code -prof gc} to see bytes allocated per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserAuthoritiesBenchmark {
+
+    private User user;
+
+    @Setup
+    public void setup() {
+        user = BenchFixtures.user();
+    }
+
+    @Benchmark
+    public Collection<?> getAuthorities() {
+        return user.getAuthorities();
+    }
+
+    // A freshly loaded document, as every DB-backed filter pass sees it
+    @Benchmark
+    public Collection<?> getAuthoritiesFreshUser() {
+        return BenchFixtures.user().getAuthorities();
+    }
+}
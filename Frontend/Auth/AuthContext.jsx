@@ -1,9 +1,34 @@
 import React, { createContext, useState, useEffect, useContext } from 'react';
 import axios from 'axios';
 
+const API_BASE_URL = import.meta.env.VITE_API_URL || 'http://localhost:8080';
+
 // Create the Auth Context
 const AuthContext = createContext(null);
 
+// Single in-flight refresh shared by every request that got a 401 at the same time
+let refreshPromise = null;
+
+const refreshTokens = () => {
+    if (!refreshPromise) {
+        const refreshToken = localStorage.getItem('refreshToken');
+        refreshPromise = (refreshToken
+            ? axios.post(`${API_BASE_URL}/auth/refresh`, { refreshToken }, { skipAuthRefresh: true })
+            : Promise.reject(new Error('No refresh token')))
+            .then((response) => {
+                const { token, refreshToken: nextRefreshToken } = response.data;
+                localStorage.setItem('token', token);
+                localStorage.setItem('refreshToken', nextRefreshToken);
+                axios.defaults.headers.common['Authorization'] = `Bearer ${token}`;
+                return token;
+            })
+            .finally(() => {
+                refreshPromise = null;
+            });
+    }
+    return refreshPromise;
+};
+
 export const useAuth = () => useContext(AuthContext);
 
 export const AuthProvider = ({ children }) => {
@@ -11,6 +36,32 @@ export const AuthProvider = ({ children }) => {
     const [loading, setLoading] = useState(true);
     const [authState, setAuthState] = useState(Date.now()); // Add state to trigger re-renders
 
+    // Renew the short-lived access token on 401 and replay the request once
+    useEffect(() => {
+        const interceptor = axios.interceptors.response.use(
+            (response) => response,
+            async (error) => {
+                const original = error.config;
+                if (error.response?.status !== 401 || !original || original.skipAuthRefresh || original._retried) {
+                    return Promise.reject(error);
+                }
+                original._retried = true;
+                try {
+                    const token = await refreshTokens();
+                    original.headers = { ...original.headers, Authorization: `Bearer ${token}` };
+                    return axios(original);
+                } catch (refreshError) {
+                    logout();
+                    return Promise.reject(error);
+                }
+            }
+        );
+
+        return () => {
+            axios.interceptors.response.eject(interceptor);
+        };
+    }, []);
+
     // Load user from localStorage when the component mounts
     useEffect(() => {
         const checkAuth = () => {
@@ -46,9 +97,12 @@ export const AuthProvider = ({ children }) => {
     }, [authState]); // Depend on authState to trigger re-renders
 
     const login = (userData) => {
-        const { token, userId, name, email, access } = userData;
+        const { token, refreshToken, userId, name, email, access } = userData;
 
         localStorage.setItem('token', token);
+        if (refreshToken) {
+            localStorage.setItem('refreshToken', refreshToken);
+        }
         localStorage.setItem('userId', userId);
         localStorage.setItem('userName', name);
         localStorage.setItem('userEmail', email);
@@ -72,7 +126,17 @@ export const AuthProvider = ({ children }) => {
     };
 
     const logout = () => {
+        // Best effort: revoke the tokens server-side, the local session is cleared either way
+        const token = localStorage.getItem('token');
+        const refreshToken = localStorage.getItem('refreshToken');
+        if (token) {
+            axios.post(`${API_BASE_URL}/auth/logout`, { refreshToken },
+                { skipAuthRefresh: true, headers: { Authorization: `Bearer ${token}` } })
+                .catch(() => {});
+        }
+
         localStorage.removeItem('token');
+        localStorage.removeItem('refreshToken');
         localStorage.removeItem('userId');
         localStorage.removeItem('userName');
         localStorage.removeItem('userEmail');
@@ -53,6 +53,7 @@ export const LoginPage = () => {
             if (response.data && response.data.token) {
                 const userData = {
                     token: response.data.token,
+                    refreshToken: response.data.refreshToken,
                     userId: response.data.userId,
                     name: response.data.name,
                     email: response.data.email,
@@ -52,11 +52,12 @@ export const RegisterPage = () => {
 
             console.log('Register response:', response.data);
 
-            const { token, userId, name, email, access } = response.data;
+            const { token, refreshToken, userId, name, email, access } = response.data;
 
             if (token) {
                 const userData = {
                     token,
+                    refreshToken,
                     userId,
                     name,
                     email,
@@ -0,0 +1,277 @@
+package arious.backend.Auth.it;
+
+import arious.backend.Auth.Jwt.RefreshTokenFamily;
+import arious.backend.Auth.user.User;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The {@code /auth} contract both stacks must keep, run once per profile by
+ * {@link ServletAuthFlowTest} and {@link ReactiveAuthFlowTest} against a real server on a random
+ * port and the {@link EmbeddedMongo} instance. Every test registers its own users, so the two
+ * contexts can share the database.
+ */
+@SpringBootTest(classes = IntegrationTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "jwt.secret=integration-test-secret-integration-test-secret",
+                "password.bcrypt.strength=4",
+                "auth.rate-limit.login.ip.capacity=1000",
+                "auth.rate-limit.login.ip.per-minute=1000",
+                "auth.rate-limit.register.ip.capacity=1000",
+                "auth.rate-limit.register.ip.per-minute=1000",
+                "auth.rate-limit.login.account.capacity=3",
+                "auth.rate-limit.login.account.per-minute=1"
+        })
+abstract class AbstractAuthFlowTest {
+
+    static final String PASSWORD = "correct horse battery staple";
+
+    @Autowired
+    WebTestClient client;
+
+    @Autowired
+    MongoTemplate mongoTemplate;
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", EmbeddedMongo::uri);
+    }
+
+    @Test
+    void registeredUserCanLogInAndReadTheirProfile() {
+        String email = newEmail();
+        JsonNode registered = register(email);
+        assertNotNull(registered.get("token"));
+        assertNotNull(registered.get("refreshToken"));
+
+        JsonNode login = login(email, PASSWORD).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody();
+        String userId = login.get("userId").asText();
+
+        client.get().uri("/users/{id}", userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + login.get("token").asText())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.email").isEqualTo(email)
+                .jsonPath("$.password").doesNotExist();
+
+        client.get().uri("/users/{id}", userId).exchange().expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void duplicateEmailIsRejected() {
+        String email = newEmail();
+        register(email);
+        client.post().uri("/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("email", email, "password", PASSWORD, "name", "Twin"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void refreshRotatesAndAReplayRevokesTheFamily() {
+        String first = register(newEmail()).get("refreshToken").asText();
+
+        String second = refresh(first).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody().get("refreshToken").asText();
+        assertNotEquals(first, second);
+        pastReuseGrace(first);
+
+        // The old token again: reuse, which also ends the session it was stolen from
+        refresh(first).expectStatus().isUnauthorized();
+        refresh(second).expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void aGuessedSecretRevokesNothing() {
+        String refreshToken = register(newEmail()).get("refreshToken").asText();
+        String familyId = refreshToken.substring(0, refreshToken.indexOf('.'));
+
+        refresh(familyId + ".not-the-secret").expectStatus().isUnauthorized();
+        refresh(refreshToken).expectStatus().isOk();
+    }
+
+    @Test
+    void twoTabsRefreshingAtOnceKeepTheSession() {
+        String first = register(newEmail()).get("refreshToken").asText();
+        String second = refresh(first).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody().get("refreshToken").asText();
+
+        // The other tab lost the race with the same token, within the grace
+        refresh(first).expectStatus().isUnauthorized();
+        refresh(second).expectStatus().isOk();
+    }
+
+    @Test
+    void logoutWithoutTheCurrentSecretRevokesNothing() {
+        JsonNode registered = register(newEmail());
+        String refreshToken = registered.get("refreshToken").asText();
+        String familyId = refreshToken.substring(0, refreshToken.indexOf('.'));
+
+        logout(registered.get("token").asText(), familyId + ".not-the-secret").expectStatus().isNoContent();
+        JsonNode rotated = refresh(refreshToken).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody();
+
+        logout(rotated.get("token").asText(), rotated.get("refreshToken").asText()).expectStatus().isNoContent();
+        refresh(rotated.get("refreshToken").asText()).expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void refreshMintsTheUsersCurrentRoles() {
+        JsonNode registered = register(newEmail());
+        String userId = registered.get("userId").asText();
+        mongoTemplate.updateFirst(byId(userId), Update.update("roles", Set.of("USER", "AUDITOR")), User.class);
+
+        JsonNode refreshed = refresh(registered.get("refreshToken").asText()).expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+        assertEquals(Set.of("USER", "AUDITOR"), roles(refreshed));
+    }
+
+    @Test
+    void refreshFailsOnceTheUserIsGone() {
+        JsonNode registered = register(newEmail());
+        mongoTemplate.remove(byId(registered.get("userId").asText()), User.class);
+
+        refresh(registered.get("refreshToken").asText()).expectStatus().isUnauthorized();
+    }
+
+    @Test
+    void onlyWrongPasswordsDrainTheAccountBucket() {
+        String email = newEmail();
+        register(email);
+        // More successful logins than the account bucket holds
+        for (int i = 0; i < 5; i++) {
+            login(email, PASSWORD).expectStatus().isOk();
+        }
+        for (int i = 0; i < 3; i++) {
+            login(email, "wrong").expectStatus().isUnauthorized();
+        }
+        login(email, PASSWORD).expectStatus().isEqualTo(HttpStatus.TOO_MANY_REQUESTS)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER);
+    }
+
+    @Test
+    void aParallelBurstOfGuessesStopsAtTheAccountCapacity() throws Exception {
+        String email = newEmail();
+        register(email);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<HttpStatusCode>> attempts = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                attempts.add(pool.submit(() -> login(email, "wrong").returnResult(Void.class).getStatus()));
+            }
+            int guesses = 0;
+            for (Future<HttpStatusCode> attempt : attempts) {
+                HttpStatusCode status = attempt.get(30, TimeUnit.SECONDS);
+                if (status.value() == HttpStatus.UNAUTHORIZED.value()) {
+                    guesses++;
+                } else {
+                    assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), status.value());
+                }
+            }
+            // The bucket holds 3 and refills one a minute
+            assertTrue(guesses <= 3, guesses + " guesses reached the password check");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void jwksRevalidatesWithWeakAndListedTags() {
+        String etag = client.get().uri("/.well-known/jwks.json").exchange()
+                .expectStatus().isOk()
+                .returnResult(byte[].class).getResponseHeaders().getETag();
+        assertNotNull(etag);
+
+        for (String ifNoneMatch : List.of(etag, "W/" + etag, "\"other\", " + etag)) {
+            client.get().uri("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch).exchange()
+                    .expectStatus().isNotModified()
+                    .expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+        }
+        client.get().uri("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, "\"other\"").exchange()
+                .expectStatus().isOk();
+    }
+
+    static String newEmail() {
+        return "it-" + UUID.randomUUID() + "@example.com";
+    }
+
+    JsonNode register(String email) {
+        return client.post().uri("/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("email", email, "password", PASSWORD, "name", "Test"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+    }
+
+    WebTestClient.ResponseSpec login(String email, String password) {
+        return client.post().uri("/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("email", email, "password", password))
+                .exchange();
+    }
+
+    WebTestClient.ResponseSpec refresh(String refreshToken) {
+        return client.post().uri("/auth/refresh").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("refreshToken", refreshToken))
+                .exchange();
+    }
+
+    WebTestClient.ResponseSpec logout(String accessToken, String refreshToken) {
+        return client.post().uri("/auth/logout").contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .bodyValue(Map.of("refreshToken", refreshToken))
+                .exchange();
+    }
+
+    // Moves the family's last rotation out of jwt.refresh.reuse-grace-ms instead of waiting for it
+    void pastReuseGrace(String refreshToken) {
+        String familyId = refreshToken.substring(0, refreshToken.indexOf('.'));
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(familyId)),
+                Update.update("rotatedAt", new Date(System.currentTimeMillis() - 60_000)), RefreshTokenFamily.class);
+    }
+
+    static Query byId(String id) {
+        return new Query(Criteria.where("_id").is(new ObjectId(id)));
+    }
+
+    static Set<String> roles(JsonNode response) {
+        Set<String> roles = new HashSet<>();
+        response.get("roles").forEach(role -> roles.add(role.asText()));
+        return roles;
+    }
+
+    static List<String> lines(String ndjson) {
+        return ndjson.lines().filter(line -> !line.isBlank()).toList();
+    }
+}
@@ -0,0 +1,35 @@
+package arious.backend.Auth.it;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+
+import java.net.InetSocketAddress;
+
+/**
+ * One in-memory MongoDB wire-protocol server for the whole test JVM, shared by the servlet and
+ * reactive contexts, so both drivers talk to the same kind of server over a real socket and no
+ * mongod binary has to be downloaded. Started on first use and stopped when the JVM exits.
+ */
+final class EmbeddedMongo {
+
+    private static final String DATABASE = "auth-it";
+
+    private EmbeddedMongo() {
+    }
+
+    static String uri() {
+        return Holder.URI;
+    }
+
+    // Initialized by the JVM on first access to uri(), exactly once
+    private static final class Holder {
+        static final String URI = start();
+
+        private static String start() {
+            MongoServer server = new MongoServer(new MemoryBackend());
+            InetSocketAddress address = server.bind();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::shutdownNow, "embedded-mongo-shutdown"));
+            return "mongodb://" + address.getHostString() + ":" + address.getPort() + "/" + DATABASE;
+        }
+    }
+}
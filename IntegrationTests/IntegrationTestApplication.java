@@ -0,0 +1,16 @@
+package arious.backend.Auth.it;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Boots every component under {@code arious.backend.Auth}, as the backend's own application class
+ * does. Repositories are enabled explicitly because Boot would only look for them below this package;
+ * the {@code reactive} profile's repository is skipped on the servlet side by its {@code @Profile}.
+ */
+@SpringBootApplication(scanBasePackages = "arious.backend.Auth")
+@EnableMongoRepositories(basePackages = "arious.backend.Auth")
+@EnableReactiveMongoRepositories(basePackages = "arious.backend.Auth")
+public class IntegrationTestApplication {
+}
@@ -0,0 +1,10 @@
+package arious.backend.Auth.it;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+// WebFlux on Netty with the reactive controllers, refresh store and security chain
+@ActiveProfiles("reactive")
+@TestPropertySource(properties = "spring.main.web-application-type=reactive")
+class ReactiveAuthFlowTest extends AbstractAuthFlowTest {
+}
@@ -0,0 +1,243 @@
+package arious.backend.Auth.it;
+
+import arious.backend.Auth.user.RoleCounts;
+import arious.backend.Auth.user.User;
+import arious.backend.Auth.user.UserService;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tomcat with the servlet controllers. Besides the shared contract this covers what only the servlet
+ * stack serves: first admin setup and the bulk endpoints.
+ */
+@Import(ServletSecurityTestConfig.class)
+@TestPropertySource(properties = "spring.main.web-application-type=servlet")
+class ServletAuthFlowTest extends AbstractAuthFlowTest {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    // Only the signature is checked, the rest of the image is never decoded
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D, 'I', 'H', 'D', 'R'};
+
+    @Autowired
+    RoleCounts roleCounts;
+
+    @Autowired
+    UserService userService;
+
+    @Test
+    void firstAdminSetupHasOneWinnerAndReopensWhenTheLastAdminIsDeleted() {
+        noAdmins();
+        JsonNode first = setupAdmin(newEmail()).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody();
+        setupAdmin(newEmail()).expectStatus().isForbidden();
+
+        client.delete().uri("/users/{id}", first.get("userId").asText())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + first.get("token").asText())
+                .exchange()
+                .expectStatus().isOk();
+        setupAdmin(newEmail()).expectStatus().isOk();
+    }
+
+    @Test
+    void bulkRoleChangeRevokesTokensAndIsAudited() {
+        noAdmins();
+        String admin = setupAdmin(newEmail()).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody().get("token").asText();
+        String email = newEmail();
+        JsonNode user = register(email);
+        String userId = user.get("userId").asText();
+
+        String results = client.put().uri("/users/bulk/roles").contentType(NDJSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + admin)
+                .bodyValue("{\"id\":\"" + userId + "\",\"roles\":[\"USER\",\"ADMIN\"]}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+        assertTrue(lines(results).get(0).contains("UPDATED"), results);
+
+        // Both tokens still name the old roles
+        client.get().uri("/users/{id}", userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + user.get("token").asText())
+                .exchange()
+                .expectStatus().isUnauthorized();
+        refresh(user.get("refreshToken").asText()).expectStatus().isUnauthorized();
+
+        // Written in the background by the audit log
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertEquals(List.of("ADMIN_CREATED", "ROLES_CHANGED"), auditTypes(email)));
+    }
+
+    @Test
+    void bulkDeleteIsAuditedWithTheEmail() {
+        noAdmins();
+        String admin = setupAdmin(newEmail()).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody().get("token").asText();
+        String email = newEmail();
+        String userId = register(email).get("userId").asText();
+
+        client.post().uri("/users/bulk/delete").contentType(NDJSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + admin)
+                .bodyValue("{\"id\":\"" + userId + "\"}\n")
+                .exchange()
+                .expectStatus().isOk();
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertEquals(List.of("USER_DELETED"), auditTypes(email)));
+    }
+
+    @Test
+    void aRepeatedIdInOneBulkChunkIsAppliedOnce() {
+        noAdmins();
+        String admin = setupAdmin(newEmail()).expectStatus().isOk().expectBody(JsonNode.class)
+                .returnResult().getResponseBody().get("token").asText();
+        String email = newEmail();
+        String userId = register(email).get("userId").asText();
+        String item = "{\"id\":\"" + userId + "\",\"roles\":[\"USER\",\"AUDITOR\"]}\n";
+        long auditors = auditors();
+
+        List<String> updated = lines(bulk("/users/bulk/roles", admin, item + item));
+        assertTrue(updated.get(0).contains("UPDATED"), updated.get(0));
+        assertTrue(updated.get(1).contains("FAILED") && updated.get(1).contains("Duplicate id"), updated.get(1));
+        assertEquals(auditors + 1, auditors());
+
+        List<String> deleted = lines(bulk("/users/bulk/delete", admin, item + item));
+        assertTrue(deleted.get(0).contains("DELETED"), deleted.get(0));
+        assertTrue(deleted.get(1).contains("Duplicate id"), deleted.get(1));
+        assertEquals(auditors, auditors());
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertEquals(List.of("ROLES_CHANGED", "USER_DELETED"), auditTypes(email)));
+    }
+
+    @Test
+    void profileUpdatesNeverReturnThePasswordHash() {
+        String email = newEmail();
+        JsonNode user = register(email);
+        String userId = user.get("userId").asText();
+
+        // Nothing editable in the body, answered from the stored profile
+        updateProfile(userId, user.get("token").asText(), Map.of("password", "ignored"))
+                .expectBody().jsonPath("$.email").isEqualTo(email)
+                .jsonPath("$.password").doesNotExist();
+        updateProfile(userId, user.get("token").asText(), Map.of("bio", "Hello"))
+                .expectBody().jsonPath("$.bio").isEqualTo("Hello")
+                .jsonPath("$.version").isEqualTo(1)
+                .jsonPath("$.password").doesNotExist();
+    }
+
+    @Test
+    void usersManageTheirOwnAvatarOnly() {
+        JsonNode user = register(newEmail());
+        String userId = user.get("userId").asText();
+        String token = user.get("token").asText();
+        String other = register(newEmail()).get("token").asText();
+
+        uploadAvatar(userId, other).expectStatus().isForbidden();
+        uploadAvatar(userId, token).expectStatus().isOk();
+        getAvatar(userId, other).expectStatus().isOk()
+                .expectHeader().contentType(MediaType.IMAGE_PNG)
+                .expectBody(byte[].class).isEqualTo(PNG);
+
+        client.delete().uri("/users/{id}/avatar", userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + other)
+                .exchange()
+                .expectStatus().isForbidden();
+        client.delete().uri("/users/{id}/avatar", userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .exchange()
+                .expectStatus().isNoContent();
+        getAvatar(userId, other).expectStatus().isNotFound();
+    }
+
+    @Test
+    void registeringCannotClaimAnotherUsersAvatar() {
+        JsonNode victim = register(newEmail());
+        String victimId = victim.get("userId").asText();
+        JsonNode ref = uploadAvatar(victimId, victim.get("token").asText()).expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+
+        JsonNode attacker = client.post().uri("/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("email", newEmail(), "password", PASSWORD, "name", "Mallory",
+                        "avatar", Map.of("id", ref.get("id").asText(), "contentType", "image/png", "size", PNG.length)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+        String attackerToken = attacker.get("token").asText();
+
+        getAvatar(attacker.get("userId").asText(), attackerToken).expectStatus().isNotFound();
+        getAvatar(victimId, attackerToken).expectStatus().isOk();
+    }
+
+    private long auditors() {
+        return userService.countUsersByRole().getOrDefault("AUDITOR", 0L);
+    }
+
+    private String bulk(String uri, String token, String ndjson) {
+        return client.method(uri.endsWith("/roles") ? HttpMethod.PUT : HttpMethod.POST).uri(uri).contentType(NDJSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+    }
+
+    private WebTestClient.ResponseSpec updateProfile(String userId, String token, Map<String, String> body) {
+        return client.put().uri("/auth/{id}", userId).contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private WebTestClient.ResponseSpec getAvatar(String userId, String token) {
+        return client.get().uri("/users/{id}/avatar", userId)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec uploadAvatar(String userId, String token) {
+        return client.put().uri("/users/{id}/avatar", userId).contentType(MediaType.IMAGE_PNG)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                .bodyValue(PNG)
+                .exchange();
+    }
+
+    private WebTestClient.ResponseSpec setupAdmin(String email) {
+        return client.post().uri("/auth/setup-admin").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("email", email, "password", PASSWORD, "name", "Admin"))
+                .exchange();
+    }
+
+    // Tests of this class share the database, each one starts from "no admin set up yet"
+    private void noAdmins() {
+        mongoTemplate.remove(new Query(Criteria.where("roles").is("ADMIN")), User.class);
+        mongoTemplate.remove(new Query(), "admin_setup_guard");
+        roleCounts.reconcile();
+    }
+
+    private List<String> auditTypes(String email) {
+        Query query = new Query(Criteria.where("email").is(email)
+                .and("type").nin("REGISTER", "LOGIN_SUCCESS", "LOGIN_FAILURE"));
+        return mongoTemplate.find(query, Document.class, "auth_audit").stream()
+                .map(event -> event.getString("type"))
+                .sorted()
+                .toList();
+    }
+}
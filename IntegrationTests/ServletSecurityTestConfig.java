@@ -0,0 +1,52 @@
+package arious.backend.Auth.it;
+
+import arious.backend.Auth.Jwt.JwtAuthenticationFilter;
+import arious.backend.Auth.Jwt.JwtUtil;
+import arious.backend.Auth.Jwt.PublicRoutes;
+import arious.backend.Auth.user.UserService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+/**
+ * The servlet security chain the backend's own security config sets up, which lives with the
+ * application class rather than in this tree: stateless, the JWT filter ahead of the form login
+ * slot and the {@link PublicRoutes} bean deciding what is permitted without a token, the same
+ * shape as {@code ReactiveSecurityConfig}.
+ */
+@TestConfiguration
+@Profile("!reactive")
+@EnableMethodSecurity
+public class ServletSecurityTestConfig {
+
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtUtil jwtUtil, UserService userService,
+                                                   PublicRoutes publicRoutes) throws Exception {
+        return http
+                .csrf(AbstractHttpConfigurer::disable)
+                .httpBasic(AbstractHttpConfigurer::disable)
+                .formLogin(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .exceptionHandling(handling -> handling
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .authorizeHttpRequests(requests -> requests
+                        // CompletableFuture endpoints finish in an async dispatch, already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+                        .requestMatchers(HttpMethod.OPTIONS).permitAll()
+                        .requestMatchers(publicRoutes).permitAll()
+                        .anyRequest().authenticated())
+                .addFilterBefore(new JwtAuthenticationFilter(jwtUtil, userService, publicRoutes),
+                        UsernamePasswordAuthenticationFilter.class)
+                .build();
+    }
+}